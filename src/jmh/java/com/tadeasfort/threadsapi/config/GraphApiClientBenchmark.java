@@ -0,0 +1,188 @@
+package com.tadeasfort.threadsapi.config;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Graph API calls against a local HTTPS stub, before and after the pooled
+ * client: {@code simple} is the previous per-request
+ * {@link SimpleClientHttpRequestFactory}, {@code pooled} the shared JDK client
+ * behind {@link GraphApiRequestFactory}. The stub serves a self-signed
+ * certificate generated at setup, so both clients get a trust-all context
+ * (benchmark only) and pay for TLS handshakes the way they would against
+ * graph.threads.net. Loopback has no network round trips, so the handshake
+ * and connection savings show up smaller than they would in production.
+ * Throughput mode reports calls/sec; sample mode reports the latency
+ * distribution including p0.99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class GraphApiClientBenchmark {
+
+    // Roughly the size of a /me response
+    private static final byte[] BODY = ("{\"id\":\"1234567890\",\"username\":\"benchmark\","
+            + "\"threads_profile_picture_url\":\"https://example.com/p.jpg\",\"threads_biography\":\"stub\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // Otherwise the stub's separate header and body writes stall on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    @Param({ "simple", "pooled" })
+    public String client;
+
+    private HttpsServer server;
+    private RestTemplate restTemplate;
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverSslContext()));
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1.0/me", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        server.start();
+        uri = URI.create("https://127.0.0.1:" + server.getAddress().getPort() + "/v1.0/me?fields=id,username");
+
+        ThreadsApiConfig config = new ThreadsApiConfig();
+        SSLContext trustAll = trustAllSslContext();
+        if ("pooled".equals(client)) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .sslContext(trustAll)
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(config.getConnectTimeout())
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+            restTemplate = new RestTemplate(new GraphApiRequestFactory(httpClient, config));
+        } else {
+            SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory() {
+                @Override
+                protected void prepareConnection(HttpURLConnection connection, String httpMethod)
+                        throws IOException {
+                    if (connection instanceof HttpsURLConnection https) {
+                        https.setSSLSocketFactory(trustAll.getSocketFactory());
+                        https.setHostnameVerifier((host, session) -> true);
+                    }
+                    super.prepareConnection(connection, httpMethod);
+                }
+            };
+            factory.setConnectTimeout(config.getConnectTimeout());
+            factory.setReadTimeout(config.getReadTimeout());
+            restTemplate = new RestTemplate(factory);
+        }
+    }
+
+    /**
+     * Self-signed key pair for the stub, generated with the JDK's keytool
+     */
+    private static SSLContext serverSslContext() throws Exception {
+        char[] password = "benchmark".toCharArray();
+        Path dir = Files.createTempDirectory("graph-stub");
+        Path keystore = dir.resolve("stub.p12");
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "stub", "-keyalg", "EC", "-groupname", "secp256r1",
+                "-dname", "CN=127.0.0.1", "-ext", "SAN=ip:127.0.0.1", "-validity", "1",
+                "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", new String(password), "-keypass", new String(password))
+                .inheritIO()
+                .start();
+        if (keytool.waitFor() != 0) {
+            throw new IllegalStateException("keytool exited with " + keytool.exitValue());
+        }
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            keyStore.load(in, password);
+        }
+        Files.delete(keystore);
+        Files.delete(dir);
+
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, password);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), null, null);
+        return context;
+    }
+
+    /**
+     * Trusts any certificate; only for reaching the self-signed stub
+     */
+    private static SSLContext trustAllSslContext() throws Exception {
+        TrustManager trustAll = new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[] { trustAll }, null);
+        return context;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public byte[] getMe() {
+        return restTemplate.getForObject(uri, byte[].class);
+    }
+}
@@ -0,0 +1,102 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.Permit;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.RateLimitStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The limiter's hot paths for one user shared by 1, 8 and 64 threads:
+ * {@code check} is the pre-call quota check, {@code acquire} a reservation
+ * that is committed. Reports ns/op; run with {@code -PjmhProfilers=gc} for
+ * bytes/op ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitCheckBenchmark {
+
+    private static final String USER = "benchmark";
+
+    private ThreadsRateLimitService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RateLimitConfig config = new RateLimitConfig();
+        service = new ThreadsRateLimitService();
+        // No journal: committed usage would pile up in its queue
+        inject("metrics", new RateLimitMetrics(new SimpleMeterRegistry(), config));
+        inject("store", new InMemoryRateLimitStore());
+        inject("rateLimitConfig", config);
+        // Enough API calls that reservations never run out
+        service.updateUserImpressions(USER, Integer.MAX_VALUE);
+    }
+
+    private void inject(String name, Object value) {
+        Field field = ReflectionUtils.findField(ThreadsRateLimitService.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, service, value);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RateLimitStatus check1() {
+        return service.checkApiCallLimit(USER);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RateLimitStatus check8() {
+        return service.checkApiCallLimit(USER);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public RateLimitStatus check64() {
+        return service.checkApiCallLimit(USER);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Permit acquire1() {
+        return acquire();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Permit acquire8() {
+        return acquire();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Permit acquire64() {
+        return acquire();
+    }
+
+    private Permit acquire() {
+        Permit permit = service.tryAcquire(USER, QuotaType.API_CALLS);
+        permit.commit();
+        return permit;
+    }
+}
@@ -1,13 +1,17 @@
 package com.tadeasfort.threadsapi.aspect;
 
 import com.tadeasfort.threadsapi.service.ThreadsRateLimitService;
-import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.RateLimitStatus;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.Permit;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaClass;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
@@ -17,8 +21,12 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+// Ahead of the transaction advisor (lowest precedence): quota is reserved
+// before the annotated method's transaction takes the database connection,
+// and only committed once that transaction has committed
 @Aspect
 @Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
 public class RateLimitAspect {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitAspect.class);
@@ -32,6 +40,8 @@ public class RateLimitAspect {
         RateLimitType type() default RateLimitType.API_CALL;
 
         int userIdParamIndex() default 0; // Index of userId parameter
+
+        QuotaClass quotaClass() default QuotaClass.INTERACTIVE; // Priority of the call site's quota share
     }
 
     public enum RateLimitType {
@@ -52,28 +62,29 @@ public class RateLimitAspect {
             return joinPoint.proceed();
         }
 
-        // Check rate limit based on type
-        RateLimitStatus status = checkRateLimit(userId, rateLimit.type());
+        // Reserve quota atomically based on type
+        Permit permit = rateLimitService.tryAcquire(userId, toQuotaType(rateLimit.type()), rateLimit.quotaClass());
 
-        if (!status.isAllowed()) {
-            logger.warn("Rate limit exceeded for user {} on {}: {}", userId, rateLimit.type(), status.getReason());
+        if (!permit.isGranted()) {
+            logger.warn("Rate limit exceeded for user {} on {}: {}", userId, rateLimit.type(), permit.getReason());
             throw new ResponseStatusException(
                     HttpStatus.TOO_MANY_REQUESTS,
                     String.format("Rate limit exceeded: %s. Retry after %d seconds",
-                            status.getReason(), status.getRetryAfterSeconds()));
+                            permit.getReason(), permit.getRetryAfterSeconds()));
         }
 
         try {
             // Proceed with the method execution
             Object result = joinPoint.proceed();
 
-            // Record the successful API call
-            recordApiUsage(userId, rateLimit.type());
+            // Keep the reservation for the successful API call
+            permit.commit();
 
             return result;
-        } catch (Exception e) {
-            // Don't record failed calls against rate limit
-            logger.debug("API call failed for user {}, not recording against rate limit: {}", userId, e.getMessage());
+        } catch (Throwable e) {
+            // Don't count failed calls against rate limit
+            permit.refund();
+            logger.debug("API call failed for user {}, refunding rate limit reservation: {}", userId, e.getMessage());
             throw e;
         }
     }
@@ -87,30 +98,15 @@ public class RateLimitAspect {
         return userIdArg != null ? userIdArg.toString() : null;
     }
 
-    private RateLimitStatus checkRateLimit(String userId, RateLimitType type) {
-        switch (type) {
-            case POST:
-                return rateLimitService.checkPostLimit(userId);
-            case REPLY:
-                return rateLimitService.checkReplyLimit(userId);
-            case API_CALL:
-            default:
-                return rateLimitService.checkApiCallLimit(userId);
-        }
-    }
-
-    private void recordApiUsage(String userId, RateLimitType type) {
+    private QuotaType toQuotaType(RateLimitType type) {
         switch (type) {
             case POST:
-                rateLimitService.recordPost(userId);
-                break;
+                return QuotaType.POSTS;
             case REPLY:
-                rateLimitService.recordReply(userId);
-                break;
+                return QuotaType.REPLIES;
             case API_CALL:
             default:
-                rateLimitService.recordApiCall(userId);
-                break;
+                return QuotaType.API_CALLS;
         }
     }
-}
\ No newline at end of file
+}
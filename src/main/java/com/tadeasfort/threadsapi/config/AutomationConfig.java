@@ -0,0 +1,36 @@
+package com.tadeasfort.threadsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "threads.automation")
+public class AutomationConfig {
+
+    // Users whose due keyword subscriptions are processed at the same time,
+    // across all scheduler runs
+    private int subscriptionConcurrency = 8;
+
+    // How long one user's subscriptions may take before the run stops waiting
+    // for them and the work is interrupted
+    private Duration subscriptionUserTimeout = Duration.ofMinutes(5);
+
+    // Getters and setters
+    public int getSubscriptionConcurrency() {
+        return subscriptionConcurrency;
+    }
+
+    public void setSubscriptionConcurrency(int subscriptionConcurrency) {
+        this.subscriptionConcurrency = subscriptionConcurrency;
+    }
+
+    public Duration getSubscriptionUserTimeout() {
+        return subscriptionUserTimeout;
+    }
+
+    public void setSubscriptionUserTimeout(Duration subscriptionUserTimeout) {
+        this.subscriptionUserTimeout = subscriptionUserTimeout;
+    }
+}
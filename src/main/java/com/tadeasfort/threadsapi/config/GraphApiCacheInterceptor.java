@@ -0,0 +1,251 @@
+package com.tadeasfort.threadsapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Conditional-request cache for Graph API GETs.
+ * <p>
+ * Only endpoints with a {@code cache-max-staleness} entry are cached; every
+ * other call passes through untouched. Successful responses carrying an ETag or
+ * Last-Modified validator are kept in an LRU cache keyed by the full request
+ * URI (which includes the access token, so entries are never shared between
+ * users), bounded by entry count and by total bytes. Bodies larger than
+ * {@code cache-max-entry-bytes} are streamed to the caller and not cached. Later
+ * requests are sent with If-None-Match / If-Modified-Since and a 304 is
+ * answered from the cache. Entries younger than the endpoint's max-staleness
+ * are served without contacting the Graph API at all. Lookups are counted in
+ * {@code threads.graph.cache} by result (hit, revalidated, miss).
+ */
+public class GraphApiCacheInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphApiCacheInterceptor.class);
+
+    private final ThreadsApiConfig threadsApiConfig;
+    private final MeterRegistry meterRegistry;
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final Map<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public GraphApiCacheInterceptor(ThreadsApiConfig threadsApiConfig, MeterRegistry meterRegistry) {
+        this.threadsApiConfig = threadsApiConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String endpoint = GraphApiRequestFactory.resolveMetricEndpoint(request.getURI());
+        if (request.getMethod() != HttpMethod.GET || threadsApiConfig.getCacheMaxEntries() <= 0
+                || !threadsApiConfig.getCacheMaxStaleness().containsKey(endpoint)) {
+            return execution.execute(request, body);
+        }
+
+        String key = request.getURI().toString();
+        Duration maxStaleness = threadsApiConfig.getCacheMaxStalenessFor(endpoint);
+        CachedResponse cached = get(key);
+
+        if (cached != null && cached.ageMillis() < maxStaleness.toMillis()) {
+            count(endpoint, "hit");
+            return cached.toResponse();
+        }
+
+        if (cached != null) {
+            if (cached.eTag != null) {
+                request.getHeaders().setIfNoneMatch(cached.eTag);
+            }
+            if (cached.lastModified >= 0) {
+                request.getHeaders().setIfModifiedSince(cached.lastModified);
+            }
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        HttpStatusCode status = response.getStatusCode();
+
+        if (status.value() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+            response.close();
+            cached.storedAt = System.currentTimeMillis();
+            count(endpoint, "revalidated");
+            return cached.toResponse();
+        }
+
+        count(endpoint, "miss");
+        HttpHeaders headers = response.getHeaders();
+        boolean hasValidators = headers.getETag() != null || headers.getLastModified() >= 0;
+        if (status.value() != HttpStatus.OK.value() || (!hasValidators && maxStaleness.isZero())) {
+            if (cached != null) {
+                remove(key);
+            }
+            return response;
+        }
+
+        // Never buffer more than one entry's worth of a response
+        int maxEntryBytes = threadsApiConfig.getCacheMaxEntryBytes();
+        if (headers.getContentLength() > maxEntryBytes) {
+            return uncacheable(key, cached != null, endpoint, response, null);
+        }
+
+        String statusText = response.getStatusText();
+        byte[] content;
+        try {
+            content = response.getBody().readNBytes(maxEntryBytes + 1);
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+        if (content.length > maxEntryBytes) {
+            return uncacheable(key, cached != null, endpoint, response, content);
+        }
+        response.close();
+
+        CachedResponse entry = new CachedResponse(status, statusText, headers, content);
+        put(key, entry);
+        return entry.toResponse();
+    }
+
+    /**
+     * Pass a response too large to cache through to the caller, streaming the
+     * rest of the body after the part already read
+     */
+    private ClientHttpResponse uncacheable(String key, boolean wasCached, String endpoint,
+            ClientHttpResponse response, byte[] head) throws IOException {
+        logger.debug("Not caching {} response larger than {} bytes", endpoint,
+                threadsApiConfig.getCacheMaxEntryBytes());
+        if (wasCached) {
+            remove(key);
+        }
+        if (head == null) {
+            return response;
+        }
+
+        InputStream body = new SequenceInputStream(new ByteArrayInputStream(head), response.getBody());
+        return new ClientHttpResponse() {
+            @Override
+            public HttpStatusCode getStatusCode() throws IOException {
+                return response.getStatusCode();
+            }
+
+            @Override
+            public String getStatusText() throws IOException {
+                return response.getStatusText();
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return response.getHeaders();
+            }
+
+            @Override
+            public InputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public void close() {
+                response.close();
+            }
+        };
+    }
+
+    private synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, CachedResponse entry) {
+        CachedResponse previous = entries.put(key, entry);
+        totalBytes += entry.body.length - (previous != null ? previous.body.length : 0);
+
+        // Evict least recently used entries until within both bounds
+        Iterator<CachedResponse> eldest = entries.values().iterator();
+        while (eldest.hasNext() && (entries.size() > threadsApiConfig.getCacheMaxEntries()
+                || totalBytes > threadsApiConfig.getCacheMaxBytes())) {
+            totalBytes -= eldest.next().body.length;
+            eldest.remove();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        CachedResponse removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.body.length;
+        }
+    }
+
+    private void count(String endpoint, String result) {
+        meterRegistry.counter("threads.graph.cache", "endpoint", endpoint, "result", result).increment();
+    }
+
+    /**
+     * A buffered response together with its validators
+     */
+    private static class CachedResponse {
+        private final HttpStatusCode status;
+        private final String statusText;
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final String eTag;
+        private final long lastModified;
+        private volatile long storedAt = System.currentTimeMillis();
+
+        private CachedResponse(HttpStatusCode status, String statusText, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.statusText = statusText;
+            HttpHeaders copy = new HttpHeaders();
+            copy.putAll(headers);
+            this.headers = HttpHeaders.readOnlyHttpHeaders(copy);
+            this.body = body;
+            this.eTag = headers.getETag();
+            this.lastModified = headers.getLastModified();
+        }
+
+        private long ageMillis() {
+            return System.currentTimeMillis() - storedAt;
+        }
+
+        private ClientHttpResponse toResponse() {
+            return new ClientHttpResponse() {
+                @Override
+                public HttpStatusCode getStatusCode() {
+                    return status;
+                }
+
+                @Override
+                public String getStatusText() {
+                    return statusText;
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return headers;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return new ByteArrayInputStream(body);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.tadeasfort.threadsapi.config;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Request factory backed by a single shared JDK {@link HttpClient}.
+ * <p>
+ * The underlying client keeps connections alive and pools them per host, and
+ * negotiates HTTP/2 with graph.threads.net when available. Connect and read
+ * timeouts are resolved per endpoint from {@link ThreadsApiConfig}. The connect
+ * timeout is a property of the JDK client, so endpoints with a connect timeout
+ * override get a client (and connection pool) per distinct value; everything
+ * else shares the default client. The read timeout bounds the exchange from
+ * sending the request until the response body is closed.
+ */
+public class GraphApiRequestFactory implements ClientHttpRequestFactory {
+
+    private final HttpClient httpClient;
+    private final ThreadsApiConfig threadsApiConfig;
+
+    // One client per distinct connect timeout; the default one is httpClient
+    private final ConcurrentHashMap<Duration, HttpClient> clients = new ConcurrentHashMap<>();
+
+    // One delegate per distinct connect/read timeout pair
+    private final ConcurrentHashMap<String, JdkClientHttpRequestFactory> delegates = new ConcurrentHashMap<>();
+
+    public GraphApiRequestFactory(HttpClient httpClient, ThreadsApiConfig threadsApiConfig) {
+        this.httpClient = httpClient;
+        this.threadsApiConfig = threadsApiConfig;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        String endpoint = resolveEndpoint(uri);
+        Duration connectTimeout = threadsApiConfig.getConnectTimeoutFor(endpoint);
+        Duration readTimeout = threadsApiConfig.getReadTimeoutFor(endpoint);
+        return delegates.computeIfAbsent(connectTimeout + "/" + readTimeout,
+                key -> createDelegate(connectTimeout, readTimeout)).createRequest(uri, httpMethod);
+    }
+
+    private JdkClientHttpRequestFactory createDelegate(Duration connectTimeout, Duration readTimeout) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(clientFor(connectTimeout));
+        factory.setReadTimeout(readTimeout);
+        return factory;
+    }
+
+    private HttpClient clientFor(Duration connectTimeout) {
+        if (connectTimeout.equals(httpClient.connectTimeout().orElse(null))) {
+            return httpClient;
+        }
+        return clients.computeIfAbsent(connectTimeout, timeout -> HttpClient.newBuilder()
+                .version(httpClient.version())
+                .connectTimeout(timeout)
+                .followRedirects(httpClient.followRedirects())
+                .build());
+    }
+
+    /**
+     * Endpoint key safe to use as a metric tag: like {@link #resolveEndpoint} but
+     * object IDs (e.g. /v1.0/123) collapse to "object"
+     */
+    static String resolveMetricEndpoint(URI uri) {
+        String endpoint = resolveEndpoint(uri);
+        if (endpoint == null) {
+            return "root";
+        }
+        return endpoint.chars().allMatch(Character::isDigit) ? "object" : endpoint;
+    }
+
+    /**
+     * Use the last path segment as the endpoint key (e.g. /v1.0/123/insights ->
+     * insights)
+     */
+    static String resolveEndpoint(URI uri) {
+        String path = uri.getPath();
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        int start = path.lastIndexOf('/', end - 1) + 1;
+        return start < end ? path.substring(start, end) : null;
+    }
+}
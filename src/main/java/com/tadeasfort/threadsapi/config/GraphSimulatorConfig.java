@@ -0,0 +1,91 @@
+package com.tadeasfort.threadsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+/**
+ * Settings of the local Graph API simulator (profile "graph-simulator")
+ */
+@Configuration
+@Profile("graph-simulator")
+@ConfigurationProperties(prefix = "threads.simulator")
+public class GraphSimulatorConfig {
+
+    // Log-normal response latency described by its median and 99th percentile
+    private Duration latencyMedian = Duration.ofMillis(80);
+    private Duration latencyP99 = Duration.ofMillis(600);
+
+    // Share of requests failing with a transient 500 (0.0 - 1.0)
+    private double errorRate = 0.0;
+
+    // Calls per access token per minute before requests are throttled (code 4);
+    // 0 disables throttling
+    private int callsPerMinute = 600;
+
+    // Size of synthetic data sets
+    private int postsPerUser = 250;
+    private int searchResults = 25;
+
+    // Fixed seed for reproducible synthetic data
+    private long seed = 42;
+
+    // Getters and setters
+    public Duration getLatencyMedian() {
+        return latencyMedian;
+    }
+
+    public void setLatencyMedian(Duration latencyMedian) {
+        this.latencyMedian = latencyMedian;
+    }
+
+    public Duration getLatencyP99() {
+        return latencyP99;
+    }
+
+    public void setLatencyP99(Duration latencyP99) {
+        this.latencyP99 = latencyP99;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public int getCallsPerMinute() {
+        return callsPerMinute;
+    }
+
+    public void setCallsPerMinute(int callsPerMinute) {
+        this.callsPerMinute = callsPerMinute;
+    }
+
+    public int getPostsPerUser() {
+        return postsPerUser;
+    }
+
+    public void setPostsPerUser(int postsPerUser) {
+        this.postsPerUser = postsPerUser;
+    }
+
+    public int getSearchResults() {
+        return searchResults;
+    }
+
+    public void setSearchResults(int searchResults) {
+        this.searchResults = searchResults;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
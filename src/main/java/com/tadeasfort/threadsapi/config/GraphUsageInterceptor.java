@@ -0,0 +1,127 @@
+package com.tadeasfort.threadsapi.config;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Feeds Meta's usage headers into {@link ThreadsRateLimitService}.
+ * <p>
+ * {@code X-App-Usage} reports app-wide usage and
+ * {@code X-Business-Use-Case-Usage} reports usage per account ID (the Threads
+ * user ID), both as percentages of the respective limits. Registered after
+ * the response cache so only responses that actually came from Meta are
+ * inspected.
+ */
+public class GraphUsageInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphUsageInterceptor.class);
+
+    private static final String APP_USAGE_HEADER = "X-App-Usage";
+    private static final String BUSINESS_USAGE_HEADER = "X-Business-Use-Case-Usage";
+
+    private final ThreadsRateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
+
+    public GraphUsageInterceptor(ThreadsRateLimitService rateLimitService, ObjectMapper objectMapper) {
+        this.rateLimitService = rateLimitService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        ClientHttpResponse response = execution.execute(request, body);
+        try {
+            String appUsage = response.getHeaders().getFirst(APP_USAGE_HEADER);
+            if (appUsage != null) {
+                readAppUsage(appUsage);
+            }
+            String businessUsage = response.getHeaders().getFirst(BUSINESS_USAGE_HEADER);
+            if (businessUsage != null) {
+                readBusinessUsage(businessUsage);
+            }
+        } catch (IOException e) {
+            logger.debug("Could not parse Graph API usage headers: {}", e.getMessage());
+        }
+        return response;
+    }
+
+    /**
+     * {"call_count":28,"total_time":25,"total_cputime":25}
+     */
+    private void readAppUsage(String header) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(header)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                Usage usage = readUsage(parser);
+                rateLimitService.recordAppUsage(usage.callCount, usage.totalCpuTime, usage.totalTime);
+            }
+        }
+    }
+
+    /**
+     * {"<id>":[{"type":"...","call_count":10,"total_cputime":5,"total_time":5,
+     * "estimated_time_to_regain_access":0}]} - the highest usage across the
+     * entries of an ID is recorded
+     */
+    private void readBusinessUsage(String header) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(header)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String userId = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                Usage max = new Usage();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    Usage usage = readUsage(parser);
+                    max.callCount = Math.max(max.callCount, usage.callCount);
+                    max.totalCpuTime = Math.max(max.totalCpuTime, usage.totalCpuTime);
+                    max.totalTime = Math.max(max.totalTime, usage.totalTime);
+                    max.regainMinutes = Math.max(max.regainMinutes, usage.regainMinutes);
+                }
+                rateLimitService.recordReportedUsage(userId, max.callCount, max.totalCpuTime, max.totalTime,
+                        max.regainMinutes);
+            }
+        }
+    }
+
+    private Usage readUsage(JsonParser parser) throws IOException {
+        Usage usage = new Usage();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "call_count" -> usage.callCount = parser.getValueAsInt();
+                case "total_cputime" -> usage.totalCpuTime = parser.getValueAsInt();
+                case "total_time" -> usage.totalTime = parser.getValueAsInt();
+                case "estimated_time_to_regain_access" -> usage.regainMinutes = parser.getValueAsInt();
+                default -> parser.skipChildren();
+            }
+        }
+        return usage;
+    }
+
+    private static class Usage {
+        private int callCount;
+        private int totalCpuTime;
+        private int totalTime;
+        private int regainMinutes;
+    }
+}
@@ -0,0 +1,148 @@
+package com.tadeasfort.threadsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "threads.rate-limit")
+public class RateLimitConfig {
+
+    // Write-behind persistence of limiter state (snapshots plus usage journal)
+    private boolean persistenceEnabled = true;
+    private Duration snapshotInterval = Duration.ofSeconds(60);
+    private Duration journalFlushInterval = Duration.ofSeconds(5);
+
+    // Background keyword searches draw from a token bucket refilled evenly over
+    // 24h; the burst is how many may run back to back
+    private boolean keywordPacingEnabled = true;
+    private int keywordPacingBurst = 10;
+
+    // Where quota is reserved: "memory" (this instance only) or "jdbc" (shared
+    // between instances through the database, leased in chunks of up to
+    // leaseSize units; unused units are dropped after leaseTtl)
+    private String store = "memory";
+    private int leaseSize = 50;
+    private Duration leaseTtl = Duration.ofMinutes(5);
+
+    // Share of each quota reserved for interactive requests (automation may not
+    // use it) and for automation (backfill may not use it either)
+    private int interactiveReservePercent = 20;
+    private int automationReservePercent = 20;
+
+    // Low-value background work (keyword subscriptions, low-priority queue
+    // items) waits while a quota is forecast to run out within the horizon or
+    // has less headroom left than this
+    private Duration forecastDeferHorizon = Duration.ofHours(6);
+    private int forecastMinHeadroomPercent = 10;
+
+    // Users tagged individually in the quota metrics; usage of further users is
+    // counted under user="other" to bound the number of time series
+    private int metricsMaxUsers = 100;
+
+    // Getters and setters
+    public boolean isPersistenceEnabled() {
+        return persistenceEnabled;
+    }
+
+    public void setPersistenceEnabled(boolean persistenceEnabled) {
+        this.persistenceEnabled = persistenceEnabled;
+    }
+
+    public Duration getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(Duration snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public Duration getJournalFlushInterval() {
+        return journalFlushInterval;
+    }
+
+    public void setJournalFlushInterval(Duration journalFlushInterval) {
+        this.journalFlushInterval = journalFlushInterval;
+    }
+
+    public boolean isKeywordPacingEnabled() {
+        return keywordPacingEnabled;
+    }
+
+    public void setKeywordPacingEnabled(boolean keywordPacingEnabled) {
+        this.keywordPacingEnabled = keywordPacingEnabled;
+    }
+
+    public int getKeywordPacingBurst() {
+        return keywordPacingBurst;
+    }
+
+    public void setKeywordPacingBurst(int keywordPacingBurst) {
+        this.keywordPacingBurst = keywordPacingBurst;
+    }
+
+    public int getMetricsMaxUsers() {
+        return metricsMaxUsers;
+    }
+
+    public void setMetricsMaxUsers(int metricsMaxUsers) {
+        this.metricsMaxUsers = metricsMaxUsers;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public int getLeaseSize() {
+        return leaseSize;
+    }
+
+    public void setLeaseSize(int leaseSize) {
+        this.leaseSize = leaseSize;
+    }
+
+    public Duration getLeaseTtl() {
+        return leaseTtl;
+    }
+
+    public void setLeaseTtl(Duration leaseTtl) {
+        this.leaseTtl = leaseTtl;
+    }
+
+    public Duration getForecastDeferHorizon() {
+        return forecastDeferHorizon;
+    }
+
+    public void setForecastDeferHorizon(Duration forecastDeferHorizon) {
+        this.forecastDeferHorizon = forecastDeferHorizon;
+    }
+
+    public int getForecastMinHeadroomPercent() {
+        return forecastMinHeadroomPercent;
+    }
+
+    public void setForecastMinHeadroomPercent(int forecastMinHeadroomPercent) {
+        this.forecastMinHeadroomPercent = forecastMinHeadroomPercent;
+    }
+
+    public int getInteractiveReservePercent() {
+        return interactiveReservePercent;
+    }
+
+    public void setInteractiveReservePercent(int interactiveReservePercent) {
+        this.interactiveReservePercent = interactiveReservePercent;
+    }
+
+    public int getAutomationReservePercent() {
+        return automationReservePercent;
+    }
+
+    public void setAutomationReservePercent(int automationReservePercent) {
+        this.automationReservePercent = automationReservePercent;
+    }
+}
@@ -0,0 +1,56 @@
+package com.tadeasfort.threadsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "threads.retention")
+public class RetentionConfig {
+
+    private boolean enabled = true;
+
+    // Rows are deleted by primary key range, chunkSize IDs per transaction,
+    // pausing between chunks so other work gets the database connection
+    private int chunkSize = 500;
+    private Duration chunkPause = Duration.ofMillis(100);
+
+    // How long rows are kept, by table; tables without an entry are not cleaned
+    private Map<String, Duration> maxAge = new HashMap<>();
+
+    // Getters and setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Duration getChunkPause() {
+        return chunkPause;
+    }
+
+    public void setChunkPause(Duration chunkPause) {
+        this.chunkPause = chunkPause;
+    }
+
+    public Map<String, Duration> getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Map<String, Duration> maxAge) {
+        this.maxAge = maxAge;
+    }
+}
@@ -3,6 +3,10 @@ package com.tadeasfort.threadsapi.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "threads.api")
 public class ThreadsApiConfig {
@@ -11,6 +15,51 @@ public class ThreadsApiConfig {
     private String authUrl;
     private String tokenUrl;
 
+    // Outbound HTTP client settings
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    // Read timeout overrides keyed by the last path segment of the endpoint
+    // (e.g. "keyword_search", "insights", "threads_publish")
+    private Map<String, Duration> endpointReadTimeouts = new HashMap<>();
+    // Connect timeout overrides, keyed the same way
+    private Map<String, Duration> endpointConnectTimeouts = new HashMap<>();
+
+    // Budget for a whole call including retries and their backoff; a retry is
+    // only started if it can finish within it. Keyed like endpointReadTimeouts
+    private Duration totalTimeout = Duration.ofSeconds(90);
+    private Map<String, Duration> endpointTotalTimeouts = new HashMap<>();
+
+    // Largest response body buffered to share between coalesced callers; larger
+    // responses are streamed to the leading caller only
+    private int coalesceMaxBodyBytes = 512 * 1024;
+
+    // Conditional-request cache for GET responses (0 entries disables it)
+    private int cacheMaxEntries = 500;
+    private int cacheMaxEntryBytes = 256 * 1024;
+    private long cacheMaxBytes = 16 * 1024 * 1024;
+
+    // Endpoints that are cached, and how long a cached response may be served
+    // without revalidation (0s: always revalidate), keyed like
+    // endpointReadTimeouts; endpoints without an entry are not cached
+    private Map<String, Duration> cacheMaxStaleness = new HashMap<>();
+
+    // Retry of transient failures on idempotent calls (jittered exponential
+    // backoff)
+    private int retryMaxAttempts = 3;
+    private Duration retryBaseDelay = Duration.ofMillis(500);
+    private Duration retryMaxDelay = Duration.ofSeconds(8);
+
+    // Per-endpoint circuit breaker
+    private int circuitFailureThreshold = 5;
+    private Duration circuitOpenDuration = Duration.ofSeconds(60);
+
+    // How long calls with a throttled access token fail fast without being sent
+    private Duration throttleBackoff = Duration.ofSeconds(60);
+
+    // Upper bound on concurrent batch requests when refreshing post insights
+    private int insightsConcurrency = 8;
+
     // Getters and setters
     public String getBaseUrl() {
         return baseUrl;
@@ -35,4 +84,191 @@ public class ThreadsApiConfig {
     public void setTokenUrl(String tokenUrl) {
         this.tokenUrl = tokenUrl;
     }
-}
\ No newline at end of file
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Map<String, Duration> getEndpointReadTimeouts() {
+        return endpointReadTimeouts;
+    }
+
+    public void setEndpointReadTimeouts(Map<String, Duration> endpointReadTimeouts) {
+        this.endpointReadTimeouts = endpointReadTimeouts;
+    }
+
+    public Map<String, Duration> getEndpointConnectTimeouts() {
+        return endpointConnectTimeouts;
+    }
+
+    public void setEndpointConnectTimeouts(Map<String, Duration> endpointConnectTimeouts) {
+        this.endpointConnectTimeouts = endpointConnectTimeouts;
+    }
+
+    public Duration getTotalTimeout() {
+        return totalTimeout;
+    }
+
+    public void setTotalTimeout(Duration totalTimeout) {
+        this.totalTimeout = totalTimeout;
+    }
+
+    public Map<String, Duration> getEndpointTotalTimeouts() {
+        return endpointTotalTimeouts;
+    }
+
+    public void setEndpointTotalTimeouts(Map<String, Duration> endpointTotalTimeouts) {
+        this.endpointTotalTimeouts = endpointTotalTimeouts;
+    }
+
+    public int getCoalesceMaxBodyBytes() {
+        return coalesceMaxBodyBytes;
+    }
+
+    public void setCoalesceMaxBodyBytes(int coalesceMaxBodyBytes) {
+        this.coalesceMaxBodyBytes = coalesceMaxBodyBytes;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public int getCacheMaxEntryBytes() {
+        return cacheMaxEntryBytes;
+    }
+
+    public void setCacheMaxEntryBytes(int cacheMaxEntryBytes) {
+        this.cacheMaxEntryBytes = cacheMaxEntryBytes;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public Map<String, Duration> getCacheMaxStaleness() {
+        return cacheMaxStaleness;
+    }
+
+    public void setCacheMaxStaleness(Map<String, Duration> cacheMaxStaleness) {
+        this.cacheMaxStaleness = cacheMaxStaleness;
+    }
+
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(int retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public Duration getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
+    public void setRetryBaseDelay(Duration retryBaseDelay) {
+        this.retryBaseDelay = retryBaseDelay;
+    }
+
+    public Duration getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    public void setRetryMaxDelay(Duration retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    public int getCircuitFailureThreshold() {
+        return circuitFailureThreshold;
+    }
+
+    public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+        this.circuitFailureThreshold = circuitFailureThreshold;
+    }
+
+    public Duration getCircuitOpenDuration() {
+        return circuitOpenDuration;
+    }
+
+    public void setCircuitOpenDuration(Duration circuitOpenDuration) {
+        this.circuitOpenDuration = circuitOpenDuration;
+    }
+
+    public Duration getThrottleBackoff() {
+        return throttleBackoff;
+    }
+
+    public void setThrottleBackoff(Duration throttleBackoff) {
+        this.throttleBackoff = throttleBackoff;
+    }
+
+    public int getInsightsConcurrency() {
+        return insightsConcurrency;
+    }
+
+    public void setInsightsConcurrency(int insightsConcurrency) {
+        this.insightsConcurrency = insightsConcurrency;
+    }
+
+    /**
+     * Resolve the read timeout for an endpoint, falling back to the default; never
+     * longer than the endpoint's total timeout
+     */
+    public Duration getReadTimeoutFor(String endpoint) {
+        Duration timeout = resolve(endpointReadTimeouts, endpoint, readTimeout);
+        Duration total = getTotalTimeoutFor(endpoint);
+        return timeout.compareTo(total) > 0 ? total : timeout;
+    }
+
+    /**
+     * Resolve the connect timeout for an endpoint, falling back to the default
+     */
+    public Duration getConnectTimeoutFor(String endpoint) {
+        return resolve(endpointConnectTimeouts, endpoint, connectTimeout);
+    }
+
+    /**
+     * Resolve the total timeout (all attempts of a call) for an endpoint,
+     * falling back to the default
+     */
+    public Duration getTotalTimeoutFor(String endpoint) {
+        return resolve(endpointTotalTimeouts, endpoint, totalTimeout);
+    }
+
+    private static Duration resolve(Map<String, Duration> overrides, String endpoint, Duration fallback) {
+        if (endpoint != null) {
+            Duration override = overrides.get(endpoint);
+            if (override != null) {
+                return override;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Resolve how long a cached response of an endpoint may be served without
+     * revalidation
+     */
+    public Duration getCacheMaxStalenessFor(String endpoint) {
+        return resolve(cacheMaxStaleness, endpoint, Duration.ZERO);
+    }
+}
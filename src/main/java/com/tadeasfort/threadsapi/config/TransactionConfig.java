@@ -0,0 +1,26 @@
+package com.tadeasfort.threadsapi.config;
+
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+
+@Configuration
+public class TransactionConfig {
+
+    /**
+     * Only synchronize resources with actual transactions.
+     * <p>
+     * The pool has a single connection. With the default (synchronize always),
+     * a {@code NOT_SUPPORTED} scope binds the EntityManager of its reads to the
+     * scope; a {@code TransactionTemplate} inside it then opens a second
+     * EntityManager and waits for a second connection that never comes. Without
+     * synchronization those reads use a short-lived EntityManager (or the
+     * request's open-in-view one), which the inner transaction can reuse.
+     */
+    @Bean
+    public TransactionManagerCustomizer<AbstractPlatformTransactionManager> transactionSynchronizationCustomizer() {
+        return transactionManager -> transactionManager.setTransactionSynchronization(
+                AbstractPlatformTransactionManager.SYNCHRONIZATION_ON_ACTUAL_TRANSACTION);
+    }
+}
@@ -1,5 +1,8 @@
 package com.tadeasfort.threadsapi.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,6 +11,8 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.net.http.HttpClient;
+
 @Configuration
 @EnableSpringDataWebSupport(pageSerializationMode = EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
 public class WebConfig implements WebMvcConfigurer {
@@ -16,8 +21,26 @@ public class WebConfig implements WebMvcConfigurer {
         private String appUrl;
 
         @Bean
-        public RestTemplate restTemplate() {
-                return new RestTemplate();
+        public HttpClient graphApiHttpClient(ThreadsApiConfig threadsApiConfig) {
+                // Shared client: pooled keep-alive connections, HTTP/2 when the server
+                // supports it
+                return HttpClient.newBuilder()
+                                .version(HttpClient.Version.HTTP_2)
+                                .connectTimeout(threadsApiConfig.getConnectTimeout())
+                                .followRedirects(HttpClient.Redirect.NORMAL)
+                                .build();
+        }
+
+        @Bean
+        public RestTemplate restTemplate(HttpClient graphApiHttpClient, ThreadsApiConfig threadsApiConfig,
+                        MeterRegistry meterRegistry, ThreadsRateLimitService rateLimitService,
+                        ObjectMapper objectMapper) {
+                RestTemplate restTemplate = new RestTemplate(
+                                new GraphApiRequestFactory(graphApiHttpClient, threadsApiConfig));
+                restTemplate.getInterceptors().add(new GraphApiCacheInterceptor(threadsApiConfig, meterRegistry));
+                // After the cache, so only responses that reached Meta report usage
+                restTemplate.getInterceptors().add(new GraphUsageInterceptor(rateLimitService, objectMapper));
+                return restTemplate;
         }
 
         @Override
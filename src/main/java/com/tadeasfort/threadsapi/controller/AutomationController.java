@@ -9,6 +9,9 @@ import com.tadeasfort.threadsapi.entity.KeywordSubscription;
 import com.tadeasfort.threadsapi.repository.DiscoveredPostRepository;
 import com.tadeasfort.threadsapi.repository.KeywordSubscriptionRepository;
 import com.tadeasfort.threadsapi.service.AutomationSchedulerService;
+import com.tadeasfort.threadsapi.service.EngagementAnalyticsService;
+import com.tadeasfort.threadsapi.service.KeywordSearchPacer;
+import com.tadeasfort.threadsapi.service.RetentionService;
 import com.tadeasfort.threadsapi.service.InteractionQueueService;
 import com.tadeasfort.threadsapi.service.ThreadsApiClient;
 import com.tadeasfort.threadsapi.service.ThreadsKeywordSearchService;
@@ -47,6 +50,15 @@ public class AutomationController {
     @Autowired
     private AutomationSchedulerService schedulerService;
 
+    @Autowired
+    private KeywordSearchPacer keywordSearchPacer;
+
+    @Autowired
+    private EngagementAnalyticsService engagementAnalyticsService;
+
+    @Autowired
+    private RetentionService retentionService;
+
     @Autowired
     private InteractionQueueService queueService;
 
@@ -289,11 +301,12 @@ public class AutomationController {
         try {
             // Get subscription statistics
             long activeSubscriptions = subscriptionRepository.countByUserIdAndIsActiveTrue(userId);
-            Object[] keywordStats = subscriptionRepository.getUserKeywordStats(userId);
+            List<Object[]> keywordStatsRows = subscriptionRepository.getUserKeywordStats(userId);
+            Object[] keywordStats = keywordStatsRows.isEmpty() ? null : keywordStatsRows.get(0);
 
-            // Get discovered posts statistics
+            // Get discovered posts statistics (precomputed by the engagement analysis job)
             long postsToday = discoveredPostRepository.countPostsDiscoveredToday(userId, LocalDateTime.now());
-            List<Object[]> keywordPerformance = discoveredPostRepository.getKeywordPerformanceSummary(userId);
+            List<Object[]> keywordPerformance = engagementAnalyticsService.getKeywordPerformance(userId);
 
             // Get rate limit info
             int remainingQuota = keywordSearchService.getRemainingQuota(userId);
@@ -304,7 +317,10 @@ public class AutomationController {
                     "totalPostsFound", keywordStats != null && keywordStats[1] != null ? keywordStats[1] : 0,
                     "postsDiscoveredToday", postsToday,
                     "remainingDailyQuota", remainingQuota,
-                    "keywordPerformance", keywordPerformance));
+                    "pacingTokensAvailable", keywordSearchPacer.getAvailableTokens(userId),
+                    "keywordPerformance", keywordPerformance,
+                    "trendingKeywords", engagementAnalyticsService.getTrendingKeywords(userId, 10),
+                    "topAuthors", engagementAnalyticsService.getTopAuthors(userId)));
 
         } catch (Exception e) {
             logger.error("Error fetching analytics for user {}: {}", userId, e.getMessage());
@@ -329,6 +345,18 @@ public class AutomationController {
         }
     }
 
+    @PostMapping("/retention/run")
+    @Operation(summary = "Run the data retention cleanup now and report rows removed per table")
+    public ResponseEntity<?> runRetention() {
+        try {
+            return ResponseEntity.ok(retentionService.runRetention());
+        } catch (Exception e) {
+            logger.error("Error running retention cleanup: {}", e.getMessage());
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Failed to run retention cleanup"));
+        }
+    }
+
     // Queue Management
 
     @GetMapping("/queue/{userId}")
@@ -0,0 +1,230 @@
+package com.tadeasfort.threadsapi.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tadeasfort.threadsapi.service.GraphSimulatorService;
+import com.tadeasfort.threadsapi.service.GraphSimulatorService.SimulatedFailure;
+import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Local stand-in for the Threads Graph API, active with the "graph-simulator"
+ * profile. Point {@code threads.api.base-url} at
+ * {@code /graph-simulator/v1.0} to run the application against it.
+ */
+@Hidden
+@RestController
+@Profile("graph-simulator")
+@RequestMapping("/graph-simulator")
+public class GraphSimulatorController {
+
+    private static final String BUSINESS_USAGE_HEADER = "X-Business-Use-Case-Usage";
+
+    @Autowired
+    private GraphSimulatorService simulator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostMapping("/oauth/access_token")
+    public ResponseEntity<Object> exchangeCode(@RequestParam(required = false) String code) {
+        simulator.delay();
+        return ResponseEntity.ok(simulator.exchangeCode(code));
+    }
+
+    @GetMapping({ "/v1.0/access_token", "/v1.0/refresh_access_token" })
+    public ResponseEntity<Object> accessToken(
+            @RequestParam(name = "access_token", required = false) String accessToken,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = resolveToken(accessToken, authorization);
+        return respond(token, () -> simulator.longLivedToken(token));
+    }
+
+    @GetMapping("/v1.0/me")
+    public ResponseEntity<Object> profile(
+            @RequestParam(required = false) String fields,
+            @RequestParam(name = "access_token", required = false) String accessToken,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = resolveToken(accessToken, authorization);
+        return respond(token, () -> simulator.profile(token, fields));
+    }
+
+    @GetMapping("/v1.0/me/threads")
+    public ResponseEntity<Object> posts(
+            @RequestParam(defaultValue = "25") int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(name = "access_token", required = false) String accessToken,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = resolveToken(accessToken, authorization);
+        String nextUrlBase = ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("after").toUriString();
+        return respond(token, () -> simulator.postsPage(token, limit, after, nextUrlBase));
+    }
+
+    @PostMapping({ "/v1.0/me/threads", "/v1.0/me/threads_publish" })
+    public ResponseEntity<Object> createOrPublish(
+            @RequestParam(name = "access_token", required = false) String accessToken,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = resolveToken(accessToken, authorization);
+        return respond(token, () -> simulator.createObject(token));
+    }
+
+    @GetMapping("/v1.0/me/threads_insights")
+    public ResponseEntity<Object> userInsights(
+            @RequestParam(required = false) String metric,
+            @RequestParam(name = "access_token", required = false) String accessToken,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = resolveToken(accessToken, authorization);
+        return respond(token, () -> simulator.userInsights(token, metric));
+    }
+
+    @GetMapping("/v1.0/keyword_search")
+    public ResponseEntity<Object> keywordSearch(
+            @RequestParam(required = false) String q,
+            @RequestParam(name = "access_token", required = false) String accessToken,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = resolveToken(accessToken, authorization);
+        return respond(token, () -> simulator.keywordSearch(q));
+    }
+
+    @GetMapping("/v1.0/{postId}/insights")
+    public ResponseEntity<Object> postInsights(
+            @PathVariable String postId,
+            @RequestParam(required = false) String metric,
+            @RequestParam(name = "access_token", required = false) String accessToken,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = resolveToken(accessToken, authorization);
+        return respond(token, () -> simulator.postInsights(postId, metric));
+    }
+
+    @DeleteMapping("/v1.0/{postId}")
+    public ResponseEntity<Object> deletePost(
+            @PathVariable String postId,
+            @RequestParam(name = "access_token", required = false) String accessToken,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = resolveToken(accessToken, authorization);
+        return respond(token, () -> Map.of("success", true));
+    }
+
+    /**
+     * Graph batch endpoint: GET operations are dispatched to the handlers above.
+     * The batch shares a single latency sample, but every operation counts
+     * against the caller's call budget and may fail on its own.
+     */
+    @PostMapping({ "/v1.0", "/v1.0/" })
+    public ResponseEntity<Object> batch(@RequestParam MultiValueMap<String, String> form,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization)
+            throws JsonProcessingException {
+        String token = resolveToken(form.getFirst("access_token"), authorization);
+        String batch = form.getFirst("batch");
+        if (batch == null) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    Map.of("message", "The parameter batch is required", "type", "GraphMethodException", "code", 100)));
+        }
+
+        simulator.delay();
+        List<Map<String, Object>> operations = objectMapper.readValue(batch, new TypeReference<>() {
+        });
+        List<Map<String, Object>> responses = new ArrayList<>(operations.size());
+        for (Map<String, Object> operation : operations) {
+            responses.add(batchOperation(token, operation));
+        }
+        return ResponseEntity.ok().headers(usageHeaders(token)).body(responses);
+    }
+
+    private Map<String, Object> batchOperation(String token, Map<String, Object> operation)
+            throws JsonProcessingException {
+        SimulatedFailure failure = simulator.checkCall(token);
+        if (failure != null) {
+            return batchItem(failure.getStatus().value(), failure.getBody());
+        }
+
+        String method = String.valueOf(operation.getOrDefault("method", "GET"));
+        String relativeUrl = String.valueOf(operation.getOrDefault("relative_url", ""));
+        UriComponents uri = UriComponentsBuilder.fromUriString("/" + relativeUrl.replaceFirst("^/", "")).build();
+        String path = uri.getPath() != null ? uri.getPath() : "/";
+        String[] segments = path.substring(1).split("/");
+
+        Object body = null;
+        if ("GET".equalsIgnoreCase(method)) {
+            if (path.equals("/me")) {
+                body = simulator.profile(token, query(uri, "fields"));
+            } else if (path.equals("/me/threads_insights")) {
+                body = simulator.userInsights(token, query(uri, "metric"));
+            } else if (path.equals("/keyword_search")) {
+                body = simulator.keywordSearch(query(uri, "q"));
+            } else if (segments.length == 2 && segments[1].equals("insights")) {
+                body = simulator.postInsights(segments[0], query(uri, "metric"));
+            }
+        }
+
+        if (body == null) {
+            return batchItem(HttpStatus.BAD_REQUEST.value(), Map.of("error", Map.of(
+                    "message", "Unsupported " + method + " request to " + path, "type", "GraphMethodException",
+                    "code", 100)));
+        }
+        return batchItem(HttpStatus.OK.value(), body);
+    }
+
+    private Map<String, Object> batchItem(int code, Object body) throws JsonProcessingException {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("code", code);
+        item.put("body", objectMapper.writeValueAsString(body));
+        return item;
+    }
+
+    private String query(UriComponents uri, String name) {
+        String value = uri.getQueryParams().getFirst(name);
+        return value != null ? URLDecoder.decode(value, StandardCharsets.UTF_8) : null;
+    }
+
+    private ResponseEntity<Object> respond(String token, Supplier<Object> handler) {
+        SimulatedFailure failure = simulator.beforeCall(token);
+        if (failure != null) {
+            return ResponseEntity.status(failure.getStatus()).headers(usageHeaders(token)).body(failure.getBody());
+        }
+        return ResponseEntity.ok().headers(usageHeaders(token)).body(handler.get());
+    }
+
+    /**
+     * Per-account usage in the format of Meta's business use case header
+     */
+    private HttpHeaders usageHeaders(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        if (token == null || token.isBlank()) {
+            return headers;
+        }
+        int percent = simulator.getUsagePercent(token);
+        headers.add(BUSINESS_USAGE_HEADER, "{\"" + simulator.userIdFor(token) + "\":[{\"type\":\"threads\","
+                + "\"call_count\":" + percent + ",\"total_cputime\":" + percent / 2 + ",\"total_time\":"
+                + percent / 2 + ",\"estimated_time_to_regain_access\":" + (percent >= 100 ? 1 : 0) + "}]}");
+        return headers;
+    }
+
+    private String resolveToken(String accessToken, String authorization) {
+        if (accessToken != null && !accessToken.isBlank()) {
+            return accessToken;
+        }
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            return authorization.substring("Bearer ".length());
+        }
+        return null;
+    }
+}
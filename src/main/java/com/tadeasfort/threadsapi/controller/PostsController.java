@@ -1,5 +1,6 @@
 package com.tadeasfort.threadsapi.controller;
 
+import com.tadeasfort.threadsapi.entity.SyncCheckpoint;
 import com.tadeasfort.threadsapi.entity.ThreadsPost;
 import com.tadeasfort.threadsapi.service.ThreadsPostService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -35,6 +36,28 @@ public class PostsController {
         return ResponseEntity.ok(posts);
     }
 
+    @PostMapping("/user/{userId}/sync")
+    @Operation(summary = "Sync all user's posts", description = "Walk every page of the user's posts and store them; "
+            + "an interrupted sync resumes from its last checkpoint")
+    public ResponseEntity<SyncCheckpoint> syncUserPosts(
+            @Parameter(description = "User ID") @PathVariable String userId,
+            @Parameter(description = "Access token") @RequestParam String accessToken) {
+
+        SyncCheckpoint checkpoint = postsService.syncUserPosts(userId, accessToken, page -> {
+        });
+        return ResponseEntity.ok(checkpoint);
+    }
+
+    @GetMapping("/user/{userId}/sync")
+    @Operation(summary = "Get post sync status", description = "Retrieve the checkpoint of the user's last post sync")
+    public ResponseEntity<SyncCheckpoint> getSyncStatus(
+            @Parameter(description = "User ID") @PathVariable String userId) {
+
+        return postsService.getPostsSyncCheckpoint(userId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/user/{userId}/paginated")
     @Operation(summary = "Get user's posts with pagination", description = "Retrieve paginated posts for a specific user")
     public ResponseEntity<Page<ThreadsPost>> getUserPostsPaginated(
@@ -48,13 +71,14 @@ public class PostsController {
     }
 
     @GetMapping("/user/{userId}/insights")
-    @Operation(summary = "Get user's posts with insights", description = "Retrieve posts with performance insights")
-    public ResponseEntity<List<ThreadsPost>> getUserPostsWithInsights(
+    @Operation(summary = "Refresh user's posts with insights", description = "Sync posts and refresh their "
+            + "performance insights page by page; reports how many were updated, failed and skipped")
+    public ResponseEntity<ThreadsPostService.InsightsRefreshResult> getUserPostsWithInsights(
             @Parameter(description = "User ID") @PathVariable String userId,
             @Parameter(description = "Access token") @RequestParam String accessToken) {
 
-        List<ThreadsPost> posts = postsService.getPostsWithInsights(userId, accessToken);
-        return ResponseEntity.ok(posts);
+        ThreadsPostService.InsightsRefreshResult result = postsService.getPostsWithInsights(userId, accessToken);
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/{postId}")
@@ -1,5 +1,8 @@
 package com.tadeasfort.threadsapi.controller;
 
+import com.tadeasfort.threadsapi.service.GraphApiResilience;
+import com.tadeasfort.threadsapi.service.RateLimitForecastService;
+import com.tadeasfort.threadsapi.service.RateLimitForecastService.UserForecast;
 import com.tadeasfort.threadsapi.service.ThreadsRateLimitService;
 import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.UserRateLimitInfo;
 import io.swagger.v3.oas.annotations.Operation;
@@ -20,6 +23,12 @@ public class RateLimitController {
     @Autowired
     private ThreadsRateLimitService rateLimitService;
 
+    @Autowired
+    private GraphApiResilience graphApiResilience;
+
+    @Autowired
+    private RateLimitForecastService forecastService;
+
     @GetMapping("/status/{userId}")
     @Operation(summary = "Get rate limit status", description = "Get current rate limiting status for a user")
     public ResponseEntity<Map<String, Object>> getRateLimitStatus(
@@ -53,9 +62,26 @@ public class RateLimitController {
         response.put("postsUsagePercent", Math.round((double) userInfo.getPostsInWindow() / 250 * 100));
         response.put("repliesUsagePercent", Math.round((double) userInfo.getRepliesInWindow() / 1000 * 100));
 
+        // Usage reported by Meta's usage headers
+        response.put("cpuTimeUsed", userInfo.getCpuTimeUsed());
+        response.put("maxCpuTime", userInfo.getMaxCpuTime());
+        response.put("totalTimeUsed", userInfo.getTotalTimeUsed());
+        response.put("maxTotalTime", userInfo.getMaxTotalTime());
+        response.put("reportedCallsPercent", userInfo.getReportedCallPercent());
+        response.put("reportedCpuPercent", userInfo.getReportedCpuPercent());
+        response.put("reportedTimePercent", userInfo.getReportedTimePercent());
+        response.put("appUsagePercent", rateLimitService.getAppUsagePercent());
+
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/forecast/{userId}")
+    @Operation(summary = "Get quota forecast", description = "Consumption rates, projected exhaustion time, safe rate and headroom per quota for a user")
+    public ResponseEntity<UserForecast> getForecast(
+            @Parameter(description = "User ID") @PathVariable String userId) {
+        return ResponseEntity.ok(forecastService.forecast(userId));
+    }
+
     @PostMapping("/impressions/{userId}")
     @Operation(summary = "Update user impressions", description = "Update the impression count for a user (affects rate limits)")
     public ResponseEntity<Map<String, String>> updateImpressions(
@@ -82,4 +108,10 @@ public class RateLimitController {
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/circuits")
+    @Operation(summary = "Get circuit breaker states", description = "Get the circuit breaker state of each Graph API endpoint")
+    public ResponseEntity<Map<String, String>> getCircuitStates() {
+        return ResponseEntity.ok(graphApiResilience.getCircuitStates());
+    }
+}
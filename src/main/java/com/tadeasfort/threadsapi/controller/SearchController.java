@@ -108,7 +108,7 @@ public class SearchController {
     public ResponseEntity<String> cleanupOldSearchResults(
             @Parameter(description = "Days to keep") @RequestParam(defaultValue = "30") int daysToKeep) {
 
-        searchService.cleanupOldSearchResults(daysToKeep);
-        return ResponseEntity.ok("Search results cleanup completed");
+        long removed = searchService.cleanupOldSearchResults(daysToKeep);
+        return ResponseEntity.ok("Search results cleanup completed: " + removed + " removed");
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.tadeasfort.threadsapi.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "analytics_watermarks")
+public class AnalyticsWatermark {
+
+    @Id
+    @Column(name = "name", nullable = false)
+    private String name; // Incremental job, e.g. "engagement_summaries"
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId = 0L; // Highest source row ID already processed
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public AnalyticsWatermark() {
+    }
+
+    public AnalyticsWatermark(String name) {
+        this.name = name;
+    }
+
+    // Lifecycle methods
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
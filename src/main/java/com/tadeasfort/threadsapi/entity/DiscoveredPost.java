@@ -141,6 +141,26 @@ public class DiscoveredPost {
         this.engagementScore = score;
     }
 
+    // Copy of a discovery for another subscriber of the same search
+    public DiscoveredPost copyFor(String userId, String keyword) {
+        DiscoveredPost copy = new DiscoveredPost(postId, keyword, userId);
+        copy.postUserId = postUserId;
+        copy.username = username;
+        copy.text = text;
+        copy.mediaType = mediaType;
+        copy.permalink = permalink;
+        copy.postTimestamp = postTimestamp;
+        copy.hasReplies = hasReplies;
+        copy.isQuotePost = isQuotePost;
+        copy.isReply = isReply;
+        copy.viewsCount = viewsCount;
+        copy.likesCount = likesCount;
+        copy.repliesCount = repliesCount;
+        copy.repostsCount = repostsCount;
+        copy.quotesCount = quotesCount;
+        return copy;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,214 @@
+package com.tadeasfort.threadsapi.entity;
+
+import jakarta.persistence.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "engagement_summaries", uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "dimension",
+        "dimension_key" }))
+public class EngagementSummary {
+
+    // Time constant of the discovery velocity average
+    private static final double VELOCITY_WINDOW_HOURS = 24;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", nullable = false)
+    private Dimension dimension;
+
+    @Column(name = "dimension_key", nullable = false)
+    private String dimensionKey; // Keyword or author username
+
+    @Column(name = "post_count", nullable = false)
+    private Long postCount = 0L;
+
+    @Column(name = "total_engagement_score", nullable = false)
+    private Double totalEngagementScore = 0.0;
+
+    @Column(name = "max_engagement_score", nullable = false)
+    private Double maxEngagementScore = 0.0;
+
+    // Discoveries weighted by exp(-age / 24h) as of decayedAt
+    @Column(name = "decayed_count", nullable = false)
+    private Double decayedCount = 0.0;
+
+    @Column(name = "decayed_at")
+    private LocalDateTime decayedAt;
+
+    @Column(name = "first_discovered_at")
+    private LocalDateTime firstDiscoveredAt;
+
+    @Column(name = "last_discovered_at")
+    private LocalDateTime lastDiscoveredAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public EngagementSummary() {
+    }
+
+    public EngagementSummary(String userId, Dimension dimension, String dimensionKey) {
+        this.userId = userId;
+        this.dimension = dimension;
+        this.dimensionKey = dimensionKey;
+    }
+
+    // Lifecycle methods
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Helper methods
+    public void record(double engagementScore, LocalDateTime discoveredAt) {
+        postCount++;
+        totalEngagementScore += engagementScore;
+        maxEngagementScore = Math.max(maxEngagementScore, engagementScore);
+
+        if (decayedAt == null) {
+            decayedCount = 1.0;
+            decayedAt = discoveredAt;
+        } else if (discoveredAt.isAfter(decayedAt)) {
+            decayedCount = decayedCount * decay(decayedAt, discoveredAt) + 1;
+            decayedAt = discoveredAt;
+        } else {
+            decayedCount += decay(discoveredAt, decayedAt);
+        }
+
+        if (firstDiscoveredAt == null || discoveredAt.isBefore(firstDiscoveredAt)) {
+            firstDiscoveredAt = discoveredAt;
+        }
+        if (lastDiscoveredAt == null || discoveredAt.isAfter(lastDiscoveredAt)) {
+            lastDiscoveredAt = discoveredAt;
+        }
+    }
+
+    public double getAverageEngagementScore() {
+        return postCount > 0 ? totalEngagementScore / postCount : 0.0;
+    }
+
+    // Recent discoveries per day, averaged over roughly the last 24 hours
+    public double getDiscoveryVelocityPerDay() {
+        if (decayedAt == null) {
+            return 0.0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        double current = now.isAfter(decayedAt) ? decayedCount * decay(decayedAt, now) : decayedCount;
+        return current * 24 / VELOCITY_WINDOW_HOURS;
+    }
+
+    private static double decay(LocalDateTime from, LocalDateTime to) {
+        return Math.exp(-Duration.between(from, to).toMillis() / (VELOCITY_WINDOW_HOURS * 3_600_000));
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(Dimension dimension) {
+        this.dimension = dimension;
+    }
+
+    public String getDimensionKey() {
+        return dimensionKey;
+    }
+
+    public void setDimensionKey(String dimensionKey) {
+        this.dimensionKey = dimensionKey;
+    }
+
+    public Long getPostCount() {
+        return postCount;
+    }
+
+    public void setPostCount(Long postCount) {
+        this.postCount = postCount;
+    }
+
+    public Double getTotalEngagementScore() {
+        return totalEngagementScore;
+    }
+
+    public void setTotalEngagementScore(Double totalEngagementScore) {
+        this.totalEngagementScore = totalEngagementScore;
+    }
+
+    public Double getMaxEngagementScore() {
+        return maxEngagementScore;
+    }
+
+    public void setMaxEngagementScore(Double maxEngagementScore) {
+        this.maxEngagementScore = maxEngagementScore;
+    }
+
+    public Double getDecayedCount() {
+        return decayedCount;
+    }
+
+    public void setDecayedCount(Double decayedCount) {
+        this.decayedCount = decayedCount;
+    }
+
+    public LocalDateTime getDecayedAt() {
+        return decayedAt;
+    }
+
+    public void setDecayedAt(LocalDateTime decayedAt) {
+        this.decayedAt = decayedAt;
+    }
+
+    public LocalDateTime getFirstDiscoveredAt() {
+        return firstDiscoveredAt;
+    }
+
+    public void setFirstDiscoveredAt(LocalDateTime firstDiscoveredAt) {
+        this.firstDiscoveredAt = firstDiscoveredAt;
+    }
+
+    public LocalDateTime getLastDiscoveredAt() {
+        return lastDiscoveredAt;
+    }
+
+    public void setLastDiscoveredAt(LocalDateTime lastDiscoveredAt) {
+        this.lastDiscoveredAt = lastDiscoveredAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // Enums
+    public enum Dimension {
+        KEYWORD, AUTHOR
+    }
+}
@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "keyword_subscriptions")
+@EntityListeners(KeywordSubscriptionListener.class)
 public class KeywordSubscription {
 
     @Id
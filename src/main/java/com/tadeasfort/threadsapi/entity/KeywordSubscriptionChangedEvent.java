@@ -0,0 +1,24 @@
+package com.tadeasfort.threadsapi.entity;
+
+/**
+ * A keyword subscription was saved or deleted. Listeners that act on it after
+ * the transaction commits see the subscription's committed state.
+ */
+public class KeywordSubscriptionChangedEvent {
+
+    private final KeywordSubscription subscription;
+    private final boolean removed;
+
+    public KeywordSubscriptionChangedEvent(KeywordSubscription subscription, boolean removed) {
+        this.subscription = subscription;
+        this.removed = removed;
+    }
+
+    public KeywordSubscription getSubscription() {
+        return subscription;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tadeasfort.threadsapi.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Publishes a {@link KeywordSubscriptionChangedEvent} whenever a subscription
+ * is saved or deleted, wherever from. Hibernate obtains this listener from the
+ * Spring context.
+ */
+public class KeywordSubscriptionListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(KeywordSubscription subscription) {
+        eventPublisher.publishEvent(new KeywordSubscriptionChangedEvent(subscription, false));
+    }
+
+    @PostRemove
+    public void onRemove(KeywordSubscription subscription) {
+        eventPublisher.publishEvent(new KeywordSubscriptionChangedEvent(subscription, true));
+    }
+}
@@ -0,0 +1,78 @@
+package com.tadeasfort.threadsapi.entity;
+
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "rate_limit_journal")
+public class RateLimitJournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "quota_type", nullable = false)
+    private QuotaType quotaType;
+
+    @Column(name = "epoch_minute", nullable = false)
+    private Long epochMinute;
+
+    @Column(name = "amount", nullable = false)
+    private Long amount;
+
+    // Constructors
+    public RateLimitJournalEntry() {
+    }
+
+    public RateLimitJournalEntry(String userId, QuotaType quotaType, long epochMinute, long amount) {
+        this.userId = userId;
+        this.quotaType = quotaType;
+        this.epochMinute = epochMinute;
+        this.amount = amount;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public QuotaType getQuotaType() {
+        return quotaType;
+    }
+
+    public void setQuotaType(QuotaType quotaType) {
+        this.quotaType = quotaType;
+    }
+
+    public Long getEpochMinute() {
+        return epochMinute;
+    }
+
+    public void setEpochMinute(Long epochMinute) {
+        this.epochMinute = epochMinute;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+}
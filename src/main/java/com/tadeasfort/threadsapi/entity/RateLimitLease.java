@@ -0,0 +1,82 @@
+package com.tadeasfort.threadsapi.entity;
+
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import jakarta.persistence.*;
+
+/**
+ * Quota units leased by any instance in one minute, shared between instances
+ * when {@code threads.rate-limit.store=jdbc}
+ */
+@Entity
+@Table(name = "rate_limit_leases", uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "quota_type",
+        "epoch_minute" }), indexes = @Index(name = "idx_rate_limit_leases_user_quota", columnList = "user_id, quota_type"))
+public class RateLimitLease {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "quota_type", nullable = false)
+    private QuotaType quotaType;
+
+    @Column(name = "epoch_minute", nullable = false)
+    private Long epochMinute;
+
+    @Column(name = "leased", nullable = false)
+    private Long leased = 0L;
+
+    // Constructors
+    public RateLimitLease() {
+    }
+
+    public RateLimitLease(String userId, QuotaType quotaType, long epochMinute) {
+        this.userId = userId;
+        this.quotaType = quotaType;
+        this.epochMinute = epochMinute;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public QuotaType getQuotaType() {
+        return quotaType;
+    }
+
+    public void setQuotaType(QuotaType quotaType) {
+        this.quotaType = quotaType;
+    }
+
+    public Long getEpochMinute() {
+        return epochMinute;
+    }
+
+    public void setEpochMinute(Long epochMinute) {
+        this.epochMinute = epochMinute;
+    }
+
+    public Long getLeased() {
+        return leased;
+    }
+
+    public void setLeased(Long leased) {
+        this.leased = leased;
+    }
+}
@@ -0,0 +1,93 @@
+package com.tadeasfort.threadsapi.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "rate_limit_snapshots")
+public class RateLimitSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, unique = true)
+    private String userId;
+
+    @Column(name = "impressions")
+    private Integer impressions;
+
+    // Non-empty per-minute buckets, "TYPE:minute=count,minute=count;TYPE:..."
+    @Column(name = "usage_buckets", columnDefinition = "TEXT")
+    private String usageBuckets;
+
+    @Column(name = "last_api_call")
+    private LocalDateTime lastApiCall;
+
+    @Column(name = "snapshot_at", nullable = false)
+    private LocalDateTime snapshotAt;
+
+    // Constructors
+    public RateLimitSnapshot() {
+    }
+
+    public RateLimitSnapshot(String userId) {
+        this.userId = userId;
+    }
+
+    // Lifecycle methods
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        snapshotAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Integer getImpressions() {
+        return impressions;
+    }
+
+    public void setImpressions(Integer impressions) {
+        this.impressions = impressions;
+    }
+
+    public String getUsageBuckets() {
+        return usageBuckets;
+    }
+
+    public void setUsageBuckets(String usageBuckets) {
+        this.usageBuckets = usageBuckets;
+    }
+
+    public LocalDateTime getLastApiCall() {
+        return lastApiCall;
+    }
+
+    public void setLastApiCall(LocalDateTime lastApiCall) {
+        this.lastApiCall = lastApiCall;
+    }
+
+    public LocalDateTime getSnapshotAt() {
+        return snapshotAt;
+    }
+
+    public void setSnapshotAt(LocalDateTime snapshotAt) {
+        this.snapshotAt = snapshotAt;
+    }
+}
@@ -0,0 +1,71 @@
+package com.tadeasfort.threadsapi.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A search result a subscription turned down for scoring below its engagement
+ * threshold. Keeps later searches from treating it as new (and fetching its
+ * metrics again) until retention removes the marker.
+ */
+@Entity
+@Table(name = "rejected_posts", indexes = @Index(name = "idx_rejected_posts_post_user_keyword",
+        columnList = "post_id, user_id, keyword"))
+public class RejectedPost {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "post_id", nullable = false)
+    private String postId; // Threads post ID
+
+    @Column(name = "keyword", nullable = false)
+    private String keyword;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId; // User who has the keyword subscription
+
+    @Column(name = "engagement_score")
+    private Double engagementScore; // Score when rejected
+
+    @Column(name = "rejected_at", nullable = false)
+    private LocalDateTime rejectedAt;
+
+    // Constructors
+    public RejectedPost() {
+    }
+
+    public RejectedPost(String postId, String userId, String keyword, Double engagementScore) {
+        this.postId = postId;
+        this.userId = userId;
+        this.keyword = keyword;
+        this.engagementScore = engagementScore;
+        this.rejectedAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getPostId() {
+        return postId;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Double getEngagementScore() {
+        return engagementScore;
+    }
+
+    public LocalDateTime getRejectedAt() {
+        return rejectedAt;
+    }
+}
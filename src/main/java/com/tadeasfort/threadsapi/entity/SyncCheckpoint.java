@@ -0,0 +1,178 @@
+package com.tadeasfort.threadsapi.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "sync_checkpoints", uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "resource" }))
+public class SyncCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "resource", nullable = false)
+    private String resource; // Synced Graph API edge, e.g. "me/threads"
+
+    @Column(name = "after_cursor", columnDefinition = "TEXT")
+    private String afterCursor; // Cursor of the last persisted page
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private SyncStatus status = SyncStatus.IN_PROGRESS;
+
+    @Column(name = "pages_synced")
+    private Integer pagesSynced = 0;
+
+    @Column(name = "items_synced")
+    private Long itemsSynced = 0L;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public SyncCheckpoint() {
+    }
+
+    public SyncCheckpoint(String userId, String resource) {
+        this.userId = userId;
+        this.resource = resource;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    // Lifecycle methods
+    @PrePersist
+    protected void onCreate() {
+        if (startedAt == null) {
+            startedAt = LocalDateTime.now();
+        }
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Helper methods
+    public boolean isResumable() {
+        return status == SyncStatus.IN_PROGRESS && afterCursor != null;
+    }
+
+    public void restart() {
+        this.afterCursor = null;
+        this.status = SyncStatus.IN_PROGRESS;
+        this.pagesSynced = 0;
+        this.itemsSynced = 0L;
+        this.startedAt = LocalDateTime.now();
+        this.completedAt = null;
+    }
+
+    public void recordPage(String afterCursor, int items) {
+        this.afterCursor = afterCursor;
+        this.pagesSynced = pagesSynced + 1;
+        this.itemsSynced = itemsSynced + items;
+    }
+
+    public void markCompleted() {
+        this.afterCursor = null;
+        this.status = SyncStatus.COMPLETED;
+        this.completedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public void setResource(String resource) {
+        this.resource = resource;
+    }
+
+    public String getAfterCursor() {
+        return afterCursor;
+    }
+
+    public void setAfterCursor(String afterCursor) {
+        this.afterCursor = afterCursor;
+    }
+
+    public SyncStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SyncStatus status) {
+        this.status = status;
+    }
+
+    public Integer getPagesSynced() {
+        return pagesSynced;
+    }
+
+    public void setPagesSynced(Integer pagesSynced) {
+        this.pagesSynced = pagesSynced;
+    }
+
+    public Long getItemsSynced() {
+        return itemsSynced;
+    }
+
+    public void setItemsSynced(Long itemsSynced) {
+        this.itemsSynced = itemsSynced;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    // Enums
+    public enum SyncStatus {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
@@ -0,0 +1,9 @@
+package com.tadeasfort.threadsapi.repository;
+
+import com.tadeasfort.threadsapi.entity.AnalyticsWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AnalyticsWatermarkRepository extends JpaRepository<AnalyticsWatermark, String> {
+}
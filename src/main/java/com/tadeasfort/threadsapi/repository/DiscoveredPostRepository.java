@@ -25,6 +25,9 @@ public interface DiscoveredPostRepository extends JpaRepository<DiscoveredPost,
     Page<DiscoveredPost> findByUserIdAndKeywordOrderByEngagementScoreDesc(String userId, String keyword,
             Pageable pageable);
 
+    // Find posts discovered after the given row ID, oldest first
+    List<DiscoveredPost> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
     // Find post by post ID and user
     Optional<DiscoveredPost> findByPostIdAndUserId(String postId, String userId);
 
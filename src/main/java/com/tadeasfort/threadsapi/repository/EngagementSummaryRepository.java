@@ -0,0 +1,32 @@
+package com.tadeasfort.threadsapi.repository;
+
+import com.tadeasfort.threadsapi.entity.EngagementSummary;
+import com.tadeasfort.threadsapi.entity.EngagementSummary.Dimension;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EngagementSummaryRepository extends JpaRepository<EngagementSummary, Long> {
+
+    // Find the summary row of one keyword or author
+    Optional<EngagementSummary> findByUserIdAndDimensionAndDimensionKey(String userId, Dimension dimension,
+            String dimensionKey);
+
+    // Find all summary rows of a user for one dimension
+    List<EngagementSummary> findByUserIdAndDimension(String userId, Dimension dimension);
+
+    // Find a user's authors with the most discovered posts
+    List<EngagementSummary> findTop10ByUserIdAndDimensionOrderByPostCountDesc(String userId, Dimension dimension);
+
+    // Get keyword performance summary (keyword, post count, average and max engagement score)
+    @Query("SELECT s.dimensionKey, s.postCount, s.totalEngagementScore / s.postCount, s.maxEngagementScore " +
+            "FROM EngagementSummary s WHERE s.userId = :userId " +
+            "AND s.dimension = com.tadeasfort.threadsapi.entity.EngagementSummary.Dimension.KEYWORD " +
+            "ORDER BY s.totalEngagementScore / s.postCount DESC")
+    List<Object[]> getKeywordPerformanceSummary(@Param("userId") String userId);
+}
@@ -67,9 +67,6 @@ public interface InteractionQueueRepository extends JpaRepository<InteractionQue
     List<InteractionQueue> findFailedItemsForRetry(@Param("status") InteractionQueue.QueueStatus status,
             @Param("retryAfter") LocalDateTime retryAfter);
 
-    // Delete old completed/failed items
-    void deleteByStatusAndExecutedAtBefore(InteractionQueue.QueueStatus status, LocalDateTime cutoffDate);
-
     // Find queue items by discovered post ID
     List<InteractionQueue> findByDiscoveredPostIdOrderByCreatedAtDesc(Long discoveredPostId);
 
@@ -22,6 +22,9 @@ public interface KeywordSubscriptionRepository extends JpaRepository<KeywordSubs
     // Find subscription by user and keyword
     Optional<KeywordSubscription> findByUserIdAndKeyword(String userId, String keyword);
 
+    // Find all active subscriptions
+    List<KeywordSubscription> findByIsActiveTrue();
+
     // Find subscriptions ready for search (based on frequency)
     @Query("SELECT ks FROM KeywordSubscription ks WHERE ks.isActive = true AND " +
             "(ks.lastSearchAt IS NULL OR ks.lastSearchAt <= :cutoffTime)")
@@ -53,5 +56,5 @@ public interface KeywordSubscriptionRepository extends JpaRepository<KeywordSubs
     // Get user's keyword statistics
     @Query("SELECT SUM(ks.totalSearches), SUM(ks.totalPostsFound) FROM KeywordSubscription ks " +
             "WHERE ks.userId = :userId AND ks.isActive = true")
-    Object[] getUserKeywordStats(@Param("userId") String userId);
+    List<Object[]> getUserKeywordStats(@Param("userId") String userId);
 }
\ No newline at end of file
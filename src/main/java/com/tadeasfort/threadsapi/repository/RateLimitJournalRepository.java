@@ -0,0 +1,26 @@
+package com.tadeasfort.threadsapi.repository;
+
+import com.tadeasfort.threadsapi.entity.RateLimitJournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RateLimitJournalRepository extends JpaRepository<RateLimitJournalEntry, Long> {
+
+    // Replay order: oldest entry first
+    List<RateLimitJournalEntry> findAllByOrderByIdAsc();
+
+    // Highest entry ID, null when the journal is empty
+    @Query("SELECT MAX(j.id) FROM RateLimitJournalEntry j")
+    Long findMaxId();
+
+    // Truncate entries covered by a snapshot in a single statement
+    @Modifying
+    @Query("DELETE FROM RateLimitJournalEntry j WHERE j.id <= :maxId")
+    int deleteUpTo(@Param("maxId") Long maxId);
+}
@@ -0,0 +1,47 @@
+package com.tadeasfort.threadsapi.repository;
+
+import com.tadeasfort.threadsapi.entity.RateLimitLease;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RateLimitLeaseRepository extends JpaRepository<RateLimitLease, Long> {
+
+    // Lease row of one minute
+    Optional<RateLimitLease> findByUserIdAndQuotaTypeAndEpochMinute(String userId, QuotaType quotaType,
+            Long epochMinute);
+
+    // Units leased by all instances within the window
+    @Query("SELECT COALESCE(SUM(l.leased), 0) FROM RateLimitLease l WHERE l.userId = :userId "
+            + "AND l.quotaType = :quotaType AND l.epochMinute > :oldestMinute")
+    long sumLeased(@Param("userId") String userId, @Param("quotaType") QuotaType quotaType,
+            @Param("oldestMinute") long oldestMinute);
+
+    // Lease units only if the window total stays within the limit; the guard and
+    // the increment are one statement, so concurrent instances cannot overshoot
+    @Modifying
+    @Query("UPDATE RateLimitLease l SET l.leased = l.leased + :amount WHERE l.id = :id "
+            + "AND (SELECT COALESCE(SUM(o.leased), 0) FROM RateLimitLease o WHERE o.userId = :userId "
+            + "AND o.quotaType = :quotaType AND o.epochMinute > :oldestMinute) + :amount <= :limit")
+    int leaseWithinLimit(@Param("id") Long id, @Param("userId") String userId,
+            @Param("quotaType") QuotaType quotaType, @Param("oldestMinute") long oldestMinute,
+            @Param("amount") long amount, @Param("limit") long limit);
+
+    // Hand back units of a lease row that are no longer used
+    @Modifying
+    @Query("UPDATE RateLimitLease l SET l.leased = CASE WHEN l.leased > :amount THEN l.leased - :amount ELSE 0 END "
+            + "WHERE l.userId = :userId AND l.quotaType = :quotaType AND l.epochMinute = :epochMinute")
+    int returnLeased(@Param("userId") String userId, @Param("quotaType") QuotaType quotaType,
+            @Param("epochMinute") long epochMinute, @Param("amount") long amount);
+
+    // Drop rows that have left the window
+    @Modifying
+    @Query("DELETE FROM RateLimitLease l WHERE l.epochMinute <= :oldestMinute")
+    int deleteExpired(@Param("oldestMinute") long oldestMinute);
+}
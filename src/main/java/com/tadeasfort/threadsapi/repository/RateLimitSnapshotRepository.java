@@ -0,0 +1,9 @@
+package com.tadeasfort.threadsapi.repository;
+
+import com.tadeasfort.threadsapi.entity.RateLimitSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RateLimitSnapshotRepository extends JpaRepository<RateLimitSnapshot, Long> {
+}
@@ -0,0 +1,12 @@
+package com.tadeasfort.threadsapi.repository;
+
+import com.tadeasfort.threadsapi.entity.RejectedPost;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RejectedPostRepository extends JpaRepository<RejectedPost, Long> {
+
+    // Check if a subscriber already turned the post down
+    boolean existsByPostIdAndUserIdAndKeyword(String postId, String userId, String keyword);
+}
@@ -47,7 +47,4 @@ public interface SearchResultRepository extends JpaRepository<SearchResult, Long
 
     // Count searches by user
     Long countByUserId(String userId);
-
-    // Delete old search results (for cleanup)
-    void deleteBySearchTimestampBefore(LocalDateTime cutoffDate);
 }
\ No newline at end of file
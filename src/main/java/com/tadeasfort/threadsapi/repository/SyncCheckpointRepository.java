@@ -0,0 +1,14 @@
+package com.tadeasfort.threadsapi.repository;
+
+import com.tadeasfort.threadsapi.entity.SyncCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SyncCheckpointRepository extends JpaRepository<SyncCheckpoint, Long> {
+
+    // Find the checkpoint of a user's sync of a given resource
+    Optional<SyncCheckpoint> findByUserIdAndResource(String userId, String resource);
+}
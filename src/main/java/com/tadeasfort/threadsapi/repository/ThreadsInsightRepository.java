@@ -55,9 +55,6 @@ public interface ThreadsInsightRepository extends JpaRepository<ThreadsInsight,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
-    // Delete old insights (for cleanup)
-    void deleteByDateRecordedBefore(LocalDateTime cutoffDate);
-
     // Check if insight exists for specific conditions
     boolean existsByUserIdAndPostIdAndMetricNameAndDateRecorded(String userId, String postId, String metricName,
             LocalDateTime dateRecorded);
@@ -1,17 +1,39 @@
 package com.tadeasfort.threadsapi.service;
 
+import com.tadeasfort.threadsapi.config.AutomationConfig;
+import com.tadeasfort.threadsapi.config.RetentionConfig;
+import com.tadeasfort.threadsapi.entity.DiscoveredPost;
 import com.tadeasfort.threadsapi.entity.KeywordSubscription;
 import com.tadeasfort.threadsapi.entity.User;
 import com.tadeasfort.threadsapi.repository.KeywordSubscriptionRepository;
 import com.tadeasfort.threadsapi.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class AutomationSchedulerService {
@@ -27,50 +49,272 @@ public class AutomationSchedulerService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ThreadsRateLimitService rateLimitService;
+
+    @Autowired
+    private KeywordSearchPacer keywordSearchPacer;
+
+    @Autowired
+    private RateLimitForecastService forecastService;
+
+    @Autowired
+    private SubscriptionDueQueue dueQueue;
+
+    @Autowired
+    private EngagementAnalyticsService engagementAnalyticsService;
+
+    @Autowired
+    private AutomationConfig automationConfig;
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    private RetentionConfig retentionConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Per-user subscription work; the semaphore caps how many users run at once
+    private final ExecutorService subscriptionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private Semaphore userSlots;
+
+    // How long subscriptions wait before the quota forecast is checked again
+    private static final long FORECAST_RECHECK_MILLIS = 15 * 60 * 1000;
+
+    // How long due subscriptions left unsearched for other reasons (rate
+    // limits, missing token, errors) wait before they are tried again
+    private static final long RETRY_DELAY_MILLIS = 15 * 60 * 1000;
+
+    @PostConstruct
+    public void init() {
+        userSlots = new Semaphore(Math.max(1, automationConfig.getSubscriptionConcurrency()));
+    }
+
     /**
-     * Process keyword subscriptions every hour
-     * This job runs every hour and processes subscriptions that are due for search
+     * Load the next due time of every active subscription; from then on the
+     * queue is updated as subscriptions are saved and deleted
      */
-    @Scheduled(fixedRate = 3600000) // Every hour (3600000 ms)
-    public void processKeywordSubscriptions() {
-        logger.info("Starting scheduled keyword subscription processing");
-
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSubscriptionSchedule() {
         try {
-            // Find subscriptions that are ready for search
-            LocalDateTime cutoffTime = LocalDateTime.now();
-            List<KeywordSubscription> readySubscriptions = subscriptionRepository
-                    .findSubscriptionsReadyForSearch(cutoffTime);
+            List<KeywordSubscription> subscriptions = subscriptionRepository.findByIsActiveTrue();
+            subscriptions.forEach(dueQueue::schedule);
+            logger.info("Scheduled {} active keyword subscriptions", subscriptions.size());
+        } catch (Exception e) {
+            logger.error("Error loading keyword subscription schedule: {}", e.getMessage(), e);
+        }
+    }
 
-            logger.info("Found {} subscriptions ready for processing", readySubscriptions.size());
+    /**
+     * Process keyword subscriptions as they fall due
+     * This job runs every minute and only loads the subscriptions at the top of
+     * the due-time queue, so it costs nothing while none are due
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000) // Every minute
+    public void processKeywordSubscriptions() {
+        List<Long> dueIds = dueQueue.pollDue(System.currentTimeMillis());
+        if (dueIds.isEmpty()) {
+            return;
+        }
 
-            // Group subscriptions by user to batch process
-            readySubscriptions.stream()
-                    .collect(java.util.stream.Collectors.groupingBy(KeywordSubscription::getUserId))
-                    .forEach(this::processUserSubscriptions);
+        logger.info("Found {} subscriptions ready for processing", dueIds.size());
+
+        try {
+            List<KeywordSubscription> readySubscriptions = new ArrayList<>();
+            for (KeywordSubscription subscription : subscriptionRepository.findAllById(dueIds)) {
+                // The queue may be behind changes made by another instance
+                if (Boolean.TRUE.equals(subscription.getIsActive()) && isSubscriptionDue(subscription)) {
+                    readySubscriptions.add(subscription);
+                } else {
+                    dueQueue.schedule(subscription);
+                }
+            }
 
-            logger.info("Completed scheduled keyword subscription processing");
+            // One search per keyword and search type, charged to one of its
+            // subscribers; the searching users are processed in parallel
+            processUsersConcurrently(assignSearches(groupSubscriptions(readySubscriptions)));
 
         } catch (Exception e) {
             logger.error("Error during scheduled keyword subscription processing: {}", e.getMessage(), e);
+            long retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+            for (Long id : dueIds) {
+                if (!dueQueue.isScheduled(id)) {
+                    dueQueue.scheduleAt(id, retryAt);
+                }
+            }
         }
     }
 
     /**
-     * Process engagement analysis daily
-     * This job runs daily and analyzes discovered posts for trends and insights
+     * Group subscriptions searching the same keyword (ignoring case and extra
+     * whitespace) with the same search type
      */
-    @Scheduled(cron = "0 0 2 * * *") // Daily at 2 AM
-    public void processEngagementAnalysis() {
-        logger.info("Starting scheduled engagement analysis");
+    private List<SearchGroup> groupSubscriptions(List<KeywordSubscription> subscriptions) {
+        Map<String, SearchGroup> groups = new LinkedHashMap<>();
+        for (KeywordSubscription subscription : subscriptions) {
+            String keyword = subscription.getKeyword().trim().replaceAll("\\s+", " ");
+            groups.computeIfAbsent(keyword.toLowerCase(Locale.ROOT) + "|" + subscription.getSearchType(),
+                    key -> new SearchGroup(keyword, subscription.getSearchType()))
+                    .subscriptions.add(subscription);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Pick the account each search is charged to: the subscriber with the most
+     * keyword queries left, preferring accounts that can search right now (have
+     * a token and no tight quota forecast). Searches already assigned in this
+     * run count against an account's spare quota, spreading shared keywords
+     * over their subscribers.
+     */
+    private Map<String, List<SearchGroup>> assignSearches(List<SearchGroup> groups) {
+        Map<String, List<SearchGroup>> assignments = new LinkedHashMap<>();
+        Map<String, long[]> accounts = new HashMap<>();
+        for (SearchGroup group : groups) {
+            String searcher = null;
+            long[] best = null;
+            for (KeywordSubscription subscription : group.subscriptions) {
+                long[] account = accounts.computeIfAbsent(subscription.getUserId(), this::rankAccount);
+                if (best == null || account[0] > best[0] || (account[0] == best[0] && account[1] > best[1])) {
+                    searcher = subscription.getUserId();
+                    best = account;
+                }
+            }
+            best[1]--;
+            assignments.computeIfAbsent(searcher, k -> new ArrayList<>()).add(group);
+        }
+
+        int subscriptionCount = groups.stream().mapToInt(group -> group.subscriptions.size()).sum();
+        if (subscriptionCount > groups.size()) {
+            logger.info("Deduplicated {} due subscriptions into {} keyword searches", subscriptionCount,
+                    groups.size());
+        }
+        return assignments;
+    }
+
+    // {can search now ? 1 : 0, keyword queries left}
+    private long[] rankAccount(String userId) {
+        User user = userRepository.findByThreadsUserId(userId).orElse(null);
+        boolean usable = user != null && user.getAccessToken() != null
+                && !forecastService.shouldDeferLowValueWork(userId, ThreadsRateLimitService.QuotaType.API_CALLS,
+                        ThreadsRateLimitService.QuotaType.KEYWORD_QUERIES);
+        return new long[] { usable ? 1 : 0, rateLimitService.getRemainingKeywordQueries(userId) };
+    }
+
+    /**
+     * Process each user's subscriptions on its own virtual thread, at most
+     * {@code threads.automation.subscription-concurrency} users at a time across
+     * all runs. A user that fails or exceeds the per-user timeout only affects
+     * itself; timed-out work is interrupted and keeps its concurrency slot until
+     * it actually stops. Returns when every user has finished or timed out.
+     */
+    private void processUsersConcurrently(Map<String, List<SearchGroup>> searchesByUser) {
+        long runStart = System.nanoTime();
+        Map<String, Future<UserRunResult>> futures = new LinkedHashMap<>();
+        searchesByUser.forEach((userId, searches) -> futures.put(userId,
+                subscriptionExecutor.submit(() -> runUserSubscriptions(userId, searches))));
+
+        List<Long> latencies = new ArrayList<>(futures.size());
+        int failed = 0;
+        int timedOut = 0;
+        for (Map.Entry<String, Future<UserRunResult>> entry : futures.entrySet()) {
+            try {
+                UserRunResult result = entry.getValue().get();
+                latencies.add(result.millis);
+                if (result.outcome == UserRunOutcome.FAILED) {
+                    failed++;
+                } else if (result.outcome == UserRunOutcome.TIMED_OUT) {
+                    timedOut++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while waiting for subscriptions of user {}", entry.getKey());
+                break;
+            } catch (ExecutionException e) {
+                failed++;
+                logger.error("Subscription processing for user {} failed: {}", entry.getKey(),
+                        e.getCause().getMessage());
+            }
+        }
+
+        long runMillis = Duration.ofNanos(System.nanoTime() - runStart).toMillis();
+        meterRegistry.timer("threads.automation.subscriptions.run").record(Duration.ofMillis(runMillis));
+        Collections.sort(latencies);
+        logger.info("Completed scheduled keyword subscription processing for {} users in {} ms "
+                + "(per-user p50 {} ms, p95 {} ms, max {} ms; {} failed, {} timed out)",
+                futures.size(), runMillis, percentile(latencies, 50), percentile(latencies, 95),
+                latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1), failed, timedOut);
+    }
+
+    /**
+     * Process one user's subscriptions once a concurrency slot is free, giving
+     * up on them after the per-user timeout
+     */
+    private UserRunResult runUserSubscriptions(String userId, List<SearchGroup> searches)
+            throws InterruptedException {
+        userSlots.acquire();
+        long start = System.nanoTime();
+        Future<?> work;
+        try {
+            work = subscriptionExecutor.submit(() -> {
+                try {
+                    processUserSubscriptions(userId, searches);
+                } finally {
+                    userSlots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            userSlots.release();
+            throw e;
+        }
 
+        UserRunOutcome outcome = UserRunOutcome.COMPLETED;
         try {
-            // This would include:
-            // 1. Calculate trending keywords
-            // 2. Update engagement scores for older posts
-            // 3. Generate insights and recommendations
-            // 4. Clean up old data
+            work.get(automationConfig.getSubscriptionUserTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            work.cancel(true);
+            outcome = UserRunOutcome.TIMED_OUT;
+            logger.warn("Subscriptions of user {} did not finish within {}, interrupting them", userId,
+                    automationConfig.getSubscriptionUserTimeout());
+        } catch (ExecutionException e) {
+            outcome = UserRunOutcome.FAILED;
+            logger.error("Error processing subscriptions for user {}: {}", userId, e.getCause().getMessage());
+        }
+
+        long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        meterRegistry.timer("threads.automation.subscriptions.user", "outcome", outcome.name().toLowerCase(Locale.ROOT))
+                .record(Duration.ofMillis(millis));
+        logger.debug("Subscriptions of user {} took {} ms ({})", userId, millis, outcome);
+        return new UserRunResult(outcome, millis);
+    }
+
+    private static long percentile(List<Long> sortedValues, int percentile) {
+        if (sortedValues.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
+        return sortedValues.get(Math.max(0, index));
+    }
 
-            logger.info("Engagement analysis completed");
+    @PreDestroy
+    public void shutdown() {
+        subscriptionExecutor.shutdownNow();
+    }
+
+    /**
+     * Process engagement analysis every five minutes
+     * This job folds newly discovered posts into the per-keyword and per-author
+     * engagement summaries; it only reads posts discovered since its last run
+     */
+    @Scheduled(fixedDelay = 300000, initialDelay = 60000) // Every 5 minutes
+    public void processEngagementAnalysis() {
+        try {
+            int processed = engagementAnalyticsService.updateSummaries();
+            if (processed > 0) {
+                logger.info("Engagement analysis folded {} new discovered posts into the summaries", processed);
+            }
 
         } catch (Exception e) {
             logger.error("Error during engagement analysis: {}", e.getMessage(), e);
@@ -78,18 +322,18 @@ public class AutomationSchedulerService {
     }
 
     /**
-     * Clean up old data weekly
+     * Clean up old data daily
+     * Deletes rows past their retention age in small chunks (see RetentionService)
      */
-    @Scheduled(cron = "0 0 3 * * SUN") // Weekly on Sunday at 3 AM
+    @Scheduled(cron = "0 0 3 * * *") // Daily at 3 AM
     public void cleanupOldData() {
-        logger.info("Starting weekly data cleanup");
+        if (!retentionConfig.isEnabled()) {
+            return;
+        }
+        logger.info("Starting daily data cleanup");
 
         try {
-            // Clean up discovered posts older than 30 days
-            // Clean up completed automation jobs older than 7 days
-            // Archive old insights data
-
-            logger.info("Data cleanup completed");
+            retentionService.runRetention();
 
         } catch (Exception e) {
             logger.error("Error during data cleanup: {}", e.getMessage(), e);
@@ -99,41 +343,99 @@ public class AutomationSchedulerService {
     /**
      * Process subscriptions for a specific user
      */
-    private void processUserSubscriptions(String userId, List<KeywordSubscription> subscriptions) {
+    private void processUserSubscriptions(String userId, List<SearchGroup> searches) {
+        long retryAt = searchDueSubscriptions(userId, searches);
+
+        // Searched subscriptions were rescheduled when saved; due ones left
+        // unsearched go back into the queue for a later attempt
+        for (SearchGroup search : searches) {
+            for (KeywordSubscription subscription : search.subscriptions) {
+                if (Boolean.TRUE.equals(subscription.getIsActive())
+                        && !dueQueue.isScheduled(subscription.getId())) {
+                    dueQueue.scheduleAt(subscription.getId(),
+                            Math.max(retryAt, SubscriptionDueQueue.dueAt(subscription)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the searches charged to a user, storing the results for every
+     * subscriber of each; returns when to retry the subscriptions that could not
+     * be searched now (epoch millis)
+     */
+    private long searchDueSubscriptions(String userId, List<SearchGroup> searches) {
+        long retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
         try {
             // Get user's access token
             User user = userRepository.findByThreadsUserId(userId).orElse(null);
             if (user == null || user.getAccessToken() == null) {
                 logger.warn("User {} not found or has no access token, skipping subscriptions", userId);
-                return;
+                return retryAt;
             }
 
-            logger.info("Processing {} subscriptions for user {}", subscriptions.size(), userId);
+            logger.info("Processing {} keyword searches for user {}", searches.size(), userId);
 
             // Check rate limits before processing
             if (!keywordSearchService.checkRateLimit(userId)) {
                 logger.warn("Rate limit exceeded for user {}, skipping subscription processing", userId);
-                return;
+                return retryAt;
+            }
+
+            // Back off early when Meta reports usage close to the limit
+            ThreadsRateLimitService.RateLimitStatus apiStatus = rateLimitService.checkApiCallLimit(userId);
+            if (!apiStatus.isAllowed()) {
+                logger.warn("API usage limit reached for user {} ({}), skipping subscription processing",
+                        userId, apiStatus.getReason());
+                return retryAt;
+            }
+
+            // Subscriptions are background work: leave the rest of a quota that is
+            // forecast to run out soon to interactive use
+            if (forecastService.shouldDeferLowValueWork(userId, ThreadsRateLimitService.QuotaType.API_CALLS,
+                    ThreadsRateLimitService.QuotaType.KEYWORD_QUERIES)) {
+                logger.info("Quota forecast for user {} is tight, deferring subscription processing", userId);
+                return System.currentTimeMillis() + FORECAST_RECHECK_MILLIS;
             }
 
-            // Process each subscription
-            for (KeywordSubscription subscription : subscriptions) {
+            // Process each search
+            for (SearchGroup search : searches) {
                 try {
-                    // Check if this specific subscription is due
-                    if (isSubscriptionDue(subscription)) {
-                        logger.debug("Processing subscription for keyword: {}", subscription.getKeyword());
-
-                        // Perform the keyword search
-                        keywordSearchService.searchKeyword(
-                                userId,
-                                subscription.getKeyword(),
-                                user.getAccessToken(),
-                                subscription.getSearchType());
-
-                        // Update subscription
-                        subscription.setLastSearchAt(LocalDateTime.now());
-                        subscription.setTotalSearches(subscription.getTotalSearches() + 1);
-                        subscriptionRepository.save(subscription);
+                    // Only subscriptions that are due (a manual run passes all active ones)
+                    List<KeywordSubscription> due = search.subscriptions.stream()
+                            .filter(this::isSubscriptionDue)
+                            .toList();
+                    if (!due.isEmpty()) {
+                        // Spread the daily keyword quota evenly; what has no token now runs later
+                        long waitMillis = keywordSearchPacer.tryAcquire(userId);
+                        if (waitMillis > 0) {
+                            retryAt = System.currentTimeMillis() + waitMillis;
+                            logger.debug("Keyword search pacing deferred remaining subscriptions of user {} by {} ms",
+                                    userId, waitMillis);
+                            break;
+                        }
+
+                        logger.debug("Processing {} subscriptions for keyword: {}", due.size(), search.keyword);
+
+                        // Perform the keyword search once for all subscribers
+                        Map<Long, List<DiscoveredPost>> discovered = keywordSearchService
+                                .searchKeywordForSubscriptions(
+                                        userId,
+                                        user.getAccessToken(),
+                                        search.keyword,
+                                        search.searchType,
+                                        ThreadsRateLimitService.QuotaClass.AUTOMATION,
+                                        due);
+
+                        // Update subscriptions
+                        LocalDateTime searchedAt = LocalDateTime.now();
+                        for (KeywordSubscription subscription : due) {
+                            subscription.setLastSearchAt(searchedAt);
+                            subscription.setTotalSearches(subscription.getTotalSearches() + 1);
+                            subscription.setTotalPostsFound(subscription.getTotalPostsFound()
+                                    + discovered.getOrDefault(subscription.getId(), List.of()).size());
+                        }
+                        subscriptionRepository.saveAll(due);
 
                         // Check rate limits after each search
                         if (!keywordSearchService.checkRateLimit(userId)) {
@@ -141,15 +443,24 @@ public class AutomationSchedulerService {
                             break;
                         }
                     }
+                } catch (GraphApiException e) {
+                    if (e.shouldBackOff()) {
+                        // Throttled or circuit open: further searches would only burn quota
+                        logger.warn("Backing off subscription processing for user {}: {}", userId, e.getMessage());
+                        break;
+                    }
+                    logger.error("Error processing subscription {} for user {}: {}",
+                            search.keyword, userId, e.getMessage());
                 } catch (Exception e) {
                     logger.error("Error processing subscription {} for user {}: {}",
-                            subscription.getKeyword(), userId, e.getMessage());
+                            search.keyword, userId, e.getMessage());
                 }
             }
 
         } catch (Exception e) {
             logger.error("Error processing subscriptions for user {}: {}", userId, e.getMessage());
         }
+        return retryAt;
     }
 
     /**
@@ -163,7 +474,7 @@ public class AutomationSchedulerService {
         LocalDateTime nextSearchTime = subscription.getLastSearchAt()
                 .plusHours(subscription.getSearchFrequencyHours());
 
-        return LocalDateTime.now().isAfter(nextSearchTime);
+        return !LocalDateTime.now().isBefore(nextSearchTime);
     }
 
     /**
@@ -171,12 +482,15 @@ public class AutomationSchedulerService {
      */
     public void processUserSubscriptionsManually(String userId) {
         logger.info("Manually triggering subscription processing for user {}", userId);
+        processActiveSubscriptions(userId);
+    }
 
+    private void processActiveSubscriptions(String userId) {
         List<KeywordSubscription> subscriptions = subscriptionRepository
                 .findByUserIdAndIsActiveTrueOrderByCreatedAtDesc(userId);
 
         if (!subscriptions.isEmpty()) {
-            processUserSubscriptions(userId, subscriptions);
+            processUserSubscriptions(userId, groupSubscriptions(subscriptions));
         } else {
             logger.info("No active subscriptions found for user {}", userId);
         }
@@ -196,6 +510,32 @@ public class AutomationSchedulerService {
         return new AutomationStats();
     }
 
+    // Due subscriptions sharing one keyword search
+    private static class SearchGroup {
+        private final String keyword;
+        private final KeywordSubscription.SearchType searchType;
+        private final List<KeywordSubscription> subscriptions = new ArrayList<>();
+
+        private SearchGroup(String keyword, KeywordSubscription.SearchType searchType) {
+            this.keyword = keyword;
+            this.searchType = searchType;
+        }
+    }
+
+    private enum UserRunOutcome {
+        COMPLETED, FAILED, TIMED_OUT
+    }
+
+    private static class UserRunResult {
+        private final UserRunOutcome outcome;
+        private final long millis;
+
+        private UserRunResult(UserRunOutcome outcome, long millis) {
+            this.outcome = outcome;
+            this.millis = millis;
+        }
+    }
+
     // Inner class for automation statistics
     public static class AutomationStats {
         private long totalActiveSubscriptions;
@@ -0,0 +1,139 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.entity.AnalyticsWatermark;
+import com.tadeasfort.threadsapi.entity.DiscoveredPost;
+import com.tadeasfort.threadsapi.entity.EngagementSummary;
+import com.tadeasfort.threadsapi.entity.EngagementSummary.Dimension;
+import com.tadeasfort.threadsapi.repository.AnalyticsWatermarkRepository;
+import com.tadeasfort.threadsapi.repository.DiscoveredPostRepository;
+import com.tadeasfort.threadsapi.repository.EngagementSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rolling per-keyword and per-author engagement aggregates of discovered posts.
+ * <p>
+ * Each run folds only the {@code discovered_posts} rows above the ID watermark
+ * into the {@code engagement_summaries} table, a chunk per transaction that
+ * also advances the watermark, so a run costs as much as the new rows and an
+ * interrupted run resumes where it stopped. Analytics read the summary rows
+ * instead of aggregating the posts table. The aggregates cover every post ever
+ * discovered, including ones since removed by retention.
+ */
+@Service
+public class EngagementAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EngagementAnalyticsService.class);
+
+    private static final String WATERMARK = "engagement_summaries";
+
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private DiscoveredPostRepository discoveredPostRepository;
+
+    @Autowired
+    private EngagementSummaryRepository summaryRepository;
+
+    @Autowired
+    private AnalyticsWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // One run at a time; callers run on virtual threads
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    /**
+     * Fold posts discovered since the last run into the summaries; returns the
+     * number of posts processed, or 0 if another run is in progress
+     */
+    public int updateSummaries() {
+        if (!runLock.tryLock()) {
+            return 0;
+        }
+        try {
+            int processed = 0;
+            Integer chunk;
+            do {
+                chunk = transactionTemplate.execute(status -> processChunk());
+                processed += chunk != null ? chunk : 0;
+            } while (chunk != null && chunk == CHUNK_SIZE);
+            return processed;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private int processChunk() {
+        AnalyticsWatermark watermark = watermarkRepository.findById(WATERMARK)
+                .orElseGet(() -> new AnalyticsWatermark(WATERMARK));
+        List<DiscoveredPost> posts = discoveredPostRepository.findByIdGreaterThanOrderByIdAsc(watermark.getLastId(),
+                PageRequest.of(0, CHUNK_SIZE));
+        if (posts.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, EngagementSummary> summaries = new HashMap<>();
+        for (DiscoveredPost post : posts) {
+            double score = post.getEngagementScore() != null ? post.getEngagementScore() : 0.0;
+            LocalDateTime discoveredAt = post.getDiscoveredAt() != null ? post.getDiscoveredAt()
+                    : LocalDateTime.now();
+            summary(summaries, post.getUserId(), Dimension.KEYWORD, post.getKeyword()).record(score, discoveredAt);
+            if (post.getUsername() != null) {
+                summary(summaries, post.getUserId(), Dimension.AUTHOR, post.getUsername()).record(score,
+                        discoveredAt);
+            }
+        }
+        summaryRepository.saveAll(summaries.values());
+
+        watermark.setLastId(posts.get(posts.size() - 1).getId());
+        watermarkRepository.save(watermark);
+        logger.debug("Folded {} discovered posts into {} engagement summaries (watermark {})", posts.size(),
+                summaries.size(), watermark.getLastId());
+        return posts.size();
+    }
+
+    private EngagementSummary summary(Map<String, EngagementSummary> summaries, String userId, Dimension dimension,
+            String key) {
+        return summaries.computeIfAbsent(userId + "|" + dimension + "|" + key,
+                k -> summaryRepository.findByUserIdAndDimensionAndDimensionKey(userId, dimension, key)
+                        .orElseGet(() -> new EngagementSummary(userId, dimension, key)));
+    }
+
+    /**
+     * Keyword performance rows: keyword, post count, average and max
+     * engagement score, best average first
+     */
+    public List<Object[]> getKeywordPerformance(String userId) {
+        return summaryRepository.getKeywordPerformanceSummary(userId);
+    }
+
+    /**
+     * A user's keywords with the most discoveries per day lately
+     */
+    public List<EngagementSummary> getTrendingKeywords(String userId, int limit) {
+        return summaryRepository.findByUserIdAndDimension(userId, Dimension.KEYWORD).stream()
+                .sorted(Comparator.comparingDouble(EngagementSummary::getDiscoveryVelocityPerDay).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * A user's authors with the most discovered posts
+     */
+    public List<EngagementSummary> getTopAuthors(String userId) {
+        return summaryRepository.findTop10ByUserIdAndDimensionOrderByPostCountDesc(userId, Dimension.AUTHOR);
+    }
+}
@@ -0,0 +1,78 @@
+package com.tadeasfort.threadsapi.service;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * A classified Graph API failure.
+ * <p>
+ * Extends {@link RestClientException} so existing handlers of client errors
+ * keep working, while callers that care can tell throttling and outages apart
+ * from request errors.
+ */
+public class GraphApiException extends RestClientException {
+
+    public enum Category {
+        THROTTLED, // Rate limited by Meta (codes 4, 17, 32, 613, 80001-80014 or HTTP 429)
+        TRANSIENT, // 5xx, network errors or errors flagged as transient
+        PERMANENT, // Other 4xx: invalid token, bad parameters, missing permissions
+        CIRCUIT_OPEN // Not sent: the endpoint's circuit breaker is open
+    }
+
+    private final Category category;
+    private final String endpoint;
+    private final int httpStatus;
+    private final Integer errorCode;
+    private final Integer errorSubcode;
+    private final long retryAfterMillis;
+
+    public GraphApiException(Category category, String endpoint, int httpStatus, Integer errorCode,
+            Integer errorSubcode, String message, long retryAfterMillis, Throwable cause) {
+        super(message, cause);
+        this.category = category;
+        this.endpoint = endpoint;
+        this.httpStatus = httpStatus;
+        this.errorCode = errorCode;
+        this.errorSubcode = errorSubcode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public static GraphApiException circuitOpen(String endpoint, long retryAfterMillis) {
+        return new GraphApiException(Category.CIRCUIT_OPEN, endpoint, 0, null, null,
+                "Circuit breaker open for Graph API endpoint '" + endpoint + "'", retryAfterMillis, null);
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public Integer getErrorSubcode() {
+        return errorSubcode;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    public boolean isRetryable() {
+        return category == Category.TRANSIENT;
+    }
+
+    /**
+     * Whether callers should stop issuing further requests for now
+     */
+    public boolean shouldBackOff() {
+        return category == Category.THROTTLED || category == Category.CIRCUIT_OPEN;
+    }
+}
@@ -0,0 +1,299 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tadeasfort.threadsapi.config.ThreadsApiConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Retry and circuit breaking for Graph API calls.
+ * <p>
+ * Failures are classified from the Graph error payload. Throttling is never
+ * retried (it would only burn more quota) and is per user, so it does not
+ * touch the endpoint's breaker: further calls made with the throttled access
+ * token fail fast as {@link GraphApiException.Category#THROTTLED} for the
+ * throttle back-off, while other users keep going. Transient failures are
+ * retried with jittered exponential backoff when the call is idempotent and
+ * the endpoint's total timeout leaves room for another attempt, and count
+ * towards the shared per-endpoint breaker; permanent request errors are
+ * surfaced as-is. While a breaker is open, calls to its endpoint fail fast
+ * with {@link GraphApiException.Category#CIRCUIT_OPEN}.
+ */
+@Component
+public class GraphApiResilience {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphApiResilience.class);
+
+    // Graph error codes signalling application, user or page level throttling
+    private static final Set<Integer> THROTTLING_CODES = Set.of(4, 17, 32, 613);
+    // Graph error codes for unknown or service-side errors
+    private static final Set<Integer> TRANSIENT_CODES = Set.of(1, 2);
+
+    private final ThreadsApiConfig threadsApiConfig;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    // Throttled access tokens and when their back-off ends (epoch millis)
+    private final ConcurrentHashMap<String, Long> throttledUntil = new ConcurrentHashMap<>();
+
+    public GraphApiResilience(ThreadsApiConfig threadsApiConfig, ObjectMapper objectMapper) {
+        this.threadsApiConfig = threadsApiConfig;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Execute a call through the endpoint's circuit breaker, retrying transient
+     * failures of idempotent calls. Calls made with an access token that is
+     * backing off from throttling fail fast; pass null when there is none.
+     */
+    public <T> T execute(String endpoint, String accessToken, boolean idempotent, Supplier<T> call) {
+        checkThrottle(endpoint, accessToken);
+        CircuitBreaker breaker = breakers.computeIfAbsent(endpoint, CircuitBreaker::new);
+        int maxAttempts = idempotent ? Math.max(1, threadsApiConfig.getRetryMaxAttempts()) : 1;
+        long deadline = System.currentTimeMillis() + threadsApiConfig.getTotalTimeoutFor(endpoint).toMillis();
+
+        for (int attempt = 1;; attempt++) {
+            long now = System.currentTimeMillis();
+            if (!breaker.tryAcquire(now, threadsApiConfig.getCircuitOpenDuration().toMillis())) {
+                throw GraphApiException.circuitOpen(endpoint, breaker.remainingOpenMillis(now,
+                        threadsApiConfig.getCircuitOpenDuration().toMillis()));
+            }
+
+            GraphApiException error;
+            try {
+                T result = call.get();
+                breaker.onSuccess();
+                return result;
+            } catch (RestClientException e) {
+                error = classify(endpoint, e);
+            } catch (Throwable t) {
+                // Not an outcome of the endpoint (e.g. a decoding bug): hand back a trial slot
+                // without judging it
+                breaker.releaseTrial();
+                throw t;
+            }
+
+            switch (error.getCategory()) {
+                case TRANSIENT -> breaker.onFailure(System.currentTimeMillis(),
+                        threadsApiConfig.getCircuitFailureThreshold());
+                case THROTTLED -> {
+                    // The endpoint answered; only this user has to wait
+                    breaker.onSuccess();
+                    throttle(endpoint, accessToken);
+                }
+                default -> breaker.onSuccess(); // The endpoint answered; the request was at fault
+            }
+
+            if (!error.isRetryable() || attempt >= maxAttempts) {
+                throw error;
+            }
+
+            long delay = backoffMillis(attempt);
+            // Only retry if the next attempt ends within the total timeout, even if it times out
+            if (System.currentTimeMillis() + delay
+                    + threadsApiConfig.getReadTimeoutFor(endpoint).toMillis() > deadline) {
+                logger.warn("Transient Graph API failure on {} (attempt {}/{}), total timeout leaves no room "
+                        + "for a retry: {}", endpoint, attempt, maxAttempts, error.getMessage());
+                throw error;
+            }
+            logger.warn("Transient Graph API failure on {} (attempt {}/{}), retrying in {} ms: {}",
+                    endpoint, attempt, maxAttempts, delay, error.getMessage());
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw error;
+            }
+        }
+    }
+
+    private void checkThrottle(String endpoint, String accessToken) {
+        if (accessToken == null) {
+            return;
+        }
+        Long until = throttledUntil.get(accessToken);
+        if (until == null) {
+            return;
+        }
+        long remaining = until - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throttledUntil.remove(accessToken, until);
+            return;
+        }
+        throw new GraphApiException(GraphApiException.Category.THROTTLED, endpoint, 0, null, null,
+                "Graph API " + endpoint + " not called: access token throttled for another " + remaining + " ms",
+                remaining, null);
+    }
+
+    private void throttle(String endpoint, String accessToken) {
+        if (accessToken == null) {
+            return;
+        }
+        long until = System.currentTimeMillis() + threadsApiConfig.getThrottleBackoff().toMillis();
+        throttledUntil.merge(accessToken, until, Math::max);
+        logger.warn("Graph API throttled a call to {}; backing off that access token for {}", endpoint,
+                threadsApiConfig.getThrottleBackoff());
+    }
+
+    /**
+     * Current breaker state per endpoint
+     */
+    public Map<String, String> getCircuitStates() {
+        Map<String, String> states = new TreeMap<>();
+        breakers.forEach((endpoint, breaker) -> states.put(endpoint, breaker.getState().name()));
+        return states;
+    }
+
+    /**
+     * Classify a client exception by HTTP status and Graph error code
+     */
+    public GraphApiException classify(String endpoint, RestClientException e) {
+        if (e instanceof GraphApiException graphApiException) {
+            return graphApiException;
+        }
+
+        if (e instanceof RestClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            GraphJsonReader.GraphError details = readError(responseException.getResponseBodyAsString());
+            Integer code = details != null ? details.getCode() : null;
+            boolean flaggedTransient = details != null && details.isTransient();
+
+            GraphApiException.Category category;
+            if (status == 429 || (code != null && (THROTTLING_CODES.contains(code)
+                    || (code >= 80001 && code <= 80014)))) {
+                category = GraphApiException.Category.THROTTLED;
+            } else if (status >= 500 || flaggedTransient || (code != null && TRANSIENT_CODES.contains(code))) {
+                category = GraphApiException.Category.TRANSIENT;
+            } else {
+                category = GraphApiException.Category.PERMANENT;
+            }
+
+            String message = details != null && details.getMessage() != null ? details.getMessage() : e.getMessage();
+            return new GraphApiException(category, endpoint, status, code,
+                    details != null ? details.getSubcode() : null,
+                    "Graph API " + endpoint + " failed (" + status + "): " + message, 0, e);
+        }
+
+        // I/O failures are transient; malformed payloads will not fix themselves
+        boolean transientFailure = e instanceof ResourceAccessException
+                && !(e.getCause() instanceof JsonProcessingException);
+        return new GraphApiException(
+                transientFailure ? GraphApiException.Category.TRANSIENT : GraphApiException.Category.PERMANENT,
+                endpoint, 0, null, null, "Graph API " + endpoint + " failed: " + e.getMessage(), 0, e);
+    }
+
+    private long backoffMillis(int attempt) {
+        long base = threadsApiConfig.getRetryBaseDelay().toMillis();
+        long max = threadsApiConfig.getRetryMaxDelay().toMillis();
+        long ceiling = Math.min(max, base << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private GraphJsonReader.GraphError readError(String body) {
+        if (body == null || body.isEmpty()) {
+            return null;
+        }
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return GraphJsonReader.readError(parser);
+        } catch (IOException e) {
+            logger.debug("Could not parse Graph API error body: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Per-endpoint breaker: opens after consecutive transient failures and lets
+     * a single trial call through once the open period has elapsed
+     */
+    private static class CircuitBreaker {
+
+        enum State {
+            CLOSED,
+            OPEN,
+            HALF_OPEN
+        }
+
+        private final String endpoint;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+
+        CircuitBreaker(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized boolean tryAcquire(long now, long openMillis) {
+            switch (state) {
+                case CLOSED -> {
+                    return true;
+                }
+                case OPEN -> {
+                    if (now - openedAt >= openMillis) {
+                        state = State.HALF_OPEN;
+                        logger.info("Circuit for Graph API endpoint {} half-open, sending trial call", endpoint);
+                        return true;
+                    }
+                    return false;
+                }
+                default -> {
+                    return false; // A trial call is already in flight
+                }
+            }
+        }
+
+        synchronized void onSuccess() {
+            if (state != State.CLOSED) {
+                logger.info("Circuit for Graph API endpoint {} closed", endpoint);
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        synchronized void onFailure(long now, int threshold) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= threshold) {
+                open(now);
+            }
+        }
+
+        /**
+         * Give back the trial slot of a call that ended without an outcome of the
+         * endpoint, so the next call can try again right away
+         */
+        synchronized void releaseTrial() {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+            }
+        }
+
+        synchronized long remainingOpenMillis(long now, long openMillis) {
+            return state == State.OPEN ? Math.max(0, openedAt + openMillis - now) : 0;
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        private void open(long now) {
+            if (state != State.OPEN) {
+                logger.warn("Circuit for Graph API endpoint {} opened after {} consecutive failures",
+                        endpoint, consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = now;
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.tadeasfort.threadsapi.entity.DiscoveredPost;
+import com.tadeasfort.threadsapi.entity.SearchResult;
+import com.tadeasfort.threadsapi.entity.ThreadsInsight;
+import com.tadeasfort.threadsapi.entity.ThreadsPost;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming decoders for Threads Graph API payloads.
+ * <p>
+ * Every reader works directly on a {@link JsonParser} positioned on the
+ * response stream and maps fields straight into entities, without building a
+ * String body or a JsonNode tree first.
+ */
+public final class GraphJsonReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphJsonReader.class);
+
+    // Custom formatter for Threads API timestamps (e.g.,
+    // "2025-06-22T13:00:27+0000")
+    private static final DateTimeFormatter THREADS_TIMESTAMP_FORMATTER = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private GraphJsonReader() {
+    }
+
+    /**
+     * Reads one array element; the parser is positioned on the element's first
+     * token and must be left on its last token
+     */
+    @FunctionalInterface
+    public interface ElementReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Receives a single metric value from an insights response
+     */
+    @FunctionalInterface
+    public interface MetricConsumer {
+        void accept(String metricName, long value);
+    }
+
+    /**
+     * Read the top-level "data" array of a Graph API response
+     */
+    public static <T> List<T> readData(JsonParser parser, ElementReader<T> elementReader) throws IOException {
+        return readArrayField(parser, "data", elementReader);
+    }
+
+    /**
+     * Read a top-level array field, skipping every other field of the response
+     * object. Elements for which the reader returns null are dropped.
+     */
+    public static <T> List<T> readArrayField(JsonParser parser, String fieldName, ElementReader<T> elementReader)
+            throws IOException {
+        List<T> results = new ArrayList<>();
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (fieldName.equals(name) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        T element = elementReader.read(parser);
+                        if (element != null) {
+                            results.add(element);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Read one page of a cursor-paginated edge: the "data" array plus the
+     * paging.cursors.after cursor and whether a paging.next link is present
+     */
+    public static <T> GraphPage<T> readPage(JsonParser parser, ElementReader<T> elementReader) throws IOException {
+        GraphPage<T> page = new GraphPage<>();
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("data".equals(name) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        T element = elementReader.read(parser);
+                        if (element != null) {
+                            page.data.add(element);
+                        }
+                    }
+                } else if ("paging".equals(name) && token == JsonToken.START_OBJECT) {
+                    readPaging(parser, page);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Read a whole response into a generic map (used for loosely typed payloads
+     * such as profile and publish responses)
+     */
+    public static Map<String, Object> readMap(JsonParser parser) throws IOException {
+        if (parser.currentToken() == null && parser.nextToken() == null) {
+            return Map.of();
+        }
+        return parser.readValueAs(MAP_TYPE);
+    }
+
+    /**
+     * Read error.message from a Graph API error payload
+     */
+    public static String readErrorMessage(JsonParser parser) throws IOException {
+        GraphError error = readError(parser);
+        return error != null ? error.getMessage() : null;
+    }
+
+    /**
+     * Read the "error" object of a Graph API error payload, or null if there is
+     * none
+     */
+    public static GraphError readError(JsonParser parser) throws IOException {
+        GraphError error = null;
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("error".equals(name) && token == JsonToken.START_OBJECT) {
+                    error = new GraphError();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String errorField = parser.currentName();
+                        parser.nextToken();
+                        switch (errorField) {
+                            case "message" -> error.message = parser.getValueAsString();
+                            case "code" -> error.code = parser.getValueAsInt();
+                            case "error_subcode" -> error.subcode = parser.getValueAsInt();
+                            case "is_transient" -> error.isTransient = parser.getValueAsBoolean();
+                            default -> parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return error;
+    }
+
+    /**
+     * Read a keyword search result element into a DiscoveredPost
+     */
+    public static DiscoveredPost readDiscoveredPost(JsonParser parser, String keyword, String userId)
+            throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        DiscoveredPost discoveredPost = new DiscoveredPost(null, keyword, userId);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "id" -> discoveredPost.setPostId(parser.getValueAsString());
+                case "username" -> discoveredPost.setUsername(parser.getValueAsString());
+                case "text" -> discoveredPost.setText(parser.getValueAsString());
+                case "media_type" -> discoveredPost.setMediaType(parseMediaType(parser.getValueAsString()));
+                case "permalink" -> discoveredPost.setPermalink(parser.getValueAsString());
+                case "timestamp" -> discoveredPost.setPostTimestamp(parseTimestamp(parser.getValueAsString()));
+                case "has_replies" -> discoveredPost.setHasReplies(parser.getValueAsBoolean());
+                case "is_quote_post" -> discoveredPost.setIsQuotePost(parser.getValueAsBoolean());
+                case "is_reply" -> discoveredPost.setIsReply(parser.getValueAsBoolean());
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (discoveredPost.getPostId() == null) {
+            logger.error("Error parsing discovered post: missing id");
+            return null;
+        }
+        return discoveredPost;
+    }
+
+    /**
+     * Read a /me/threads element into a ThreadsPost
+     */
+    public static ThreadsPost readThreadsPost(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        ThreadsPost post = new ThreadsPost();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "id" -> post.setId(parser.getValueAsString());
+                case "owner" -> post.setUserId(readNestedId(parser));
+                case "username" -> post.setUsername(parser.getValueAsString());
+                case "text" -> post.setText(parser.getValueAsString());
+                case "media_type" -> post.setMediaType(parseMediaType(parser.getValueAsString()));
+                case "media_url" -> post.setMediaUrl(parser.getValueAsString());
+                case "permalink" -> post.setPermalink(parser.getValueAsString());
+                case "shortcode" -> post.setShortcode(parser.getValueAsString());
+                case "thumbnail_url" -> post.setThumbnailUrl(parser.getValueAsString());
+                case "timestamp" -> post.setTimestamp(parseTimestamp(parser.getValueAsString()));
+                case "has_replies" -> post.setHasReplies(parser.getValueAsBoolean());
+                case "is_quote_post" -> post.setIsQuotePost(parser.getValueAsBoolean());
+                case "is_reply" -> post.setIsReply(parser.getValueAsBoolean());
+                case "replied_to" -> post.setRepliedToId(readNestedId(parser));
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (post.getId() == null) {
+            logger.error("Error parsing post from JSON: missing id");
+            return null;
+        }
+        return post;
+    }
+
+    /**
+     * Read a keyword search result element into a SearchResult
+     */
+    public static SearchResult readSearchResult(JsonParser parser, String query, String searchType, String userId)
+            throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        SearchResult searchResult = new SearchResult(query, searchType, userId);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "id" -> searchResult.setPostId(parser.getValueAsString());
+                case "text" -> searchResult.setText(parser.getValueAsString());
+                case "media_type" -> searchResult.setMediaType(parseMediaType(parser.getValueAsString()));
+                case "permalink" -> searchResult.setPermalink(parser.getValueAsString());
+                case "timestamp" -> searchResult.setTimestamp(parseTimestamp(parser.getValueAsString()));
+                case "username" -> searchResult.setUsername(parser.getValueAsString());
+                case "has_replies" -> searchResult.setHasReplies(parser.getValueAsBoolean());
+                case "is_quote_post" -> searchResult.setIsQuotePost(parser.getValueAsBoolean());
+                case "is_reply" -> searchResult.setIsReply(parser.getValueAsBoolean());
+                default -> parser.skipChildren();
+            }
+        }
+        return searchResult;
+    }
+
+    /**
+     * Stream the first value of every metric in an insights response to the
+     * consumer, without materializing any insight objects
+     */
+    public static void readMetricValues(JsonParser parser, MetricConsumer consumer) throws IOException {
+        readData(parser, element -> {
+            MetricElement metric = readMetricElement(element, false);
+            if (metric != null && metric.name != null && !metric.values.isEmpty()) {
+                consumer.accept(metric.name, metric.values.get(0).value);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Read a media insights element (one metric of /{postId}/insights)
+     */
+    public static ThreadsInsight readMediaInsight(JsonParser parser, String postId, String userId)
+            throws IOException {
+        MetricElement metric = readMetricElement(parser, false);
+        if (metric == null || metric.name == null) {
+            logger.error("Error parsing media insight from JSON: missing metric name");
+            return null;
+        }
+
+        ThreadsInsight insight = new ThreadsInsight(userId, ThreadsInsight.InsightType.MEDIA_INSIGHT, metric.name,
+                0L);
+        insight.setPostId(postId);
+        insight.setPeriod(metric.period);
+        if (!metric.values.isEmpty()) {
+            insight.setMetricValue(metric.values.get(0).value);
+        }
+        return insight;
+    }
+
+    /**
+     * Read a user insights element (one metric of /me/threads_insights). A metric
+     * expands to one insight per value plus an optional demographics entry.
+     */
+    public static List<ThreadsInsight> readUserInsights(JsonParser parser, String userId) throws IOException {
+        MetricElement metric = readMetricElement(parser, true);
+        if (metric == null || metric.name == null) {
+            logger.error("Error parsing user insight from JSON: missing metric name");
+            return null;
+        }
+
+        List<ThreadsInsight> insights = new ArrayList<>(metric.values.size() + 1);
+        for (MetricValue value : metric.values) {
+            ThreadsInsight insight = new ThreadsInsight(userId, ThreadsInsight.InsightType.USER_INSIGHT,
+                    metric.name, value.value);
+            insight.setPeriod(metric.period);
+            if (value.endTime != null) {
+                insight.setDateRecorded(parseTimestamp(value.endTime));
+            }
+            insights.add(insight);
+        }
+
+        // Handle demographic breakdowns for followers_count
+        if (metric.breakdowns != null) {
+            ThreadsInsight demographicInsight = new ThreadsInsight(userId, ThreadsInsight.InsightType.USER_INSIGHT,
+                    metric.name + "_demographics", 0L);
+            demographicInsight.setBreakdownData(metric.breakdowns);
+            insights.add(demographicInsight);
+        }
+        return insights;
+    }
+
+    /**
+     * Parse Threads API timestamp format to LocalDateTime
+     */
+    public static LocalDateTime parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return LocalDateTime.now();
+        }
+        try {
+            // Parse as OffsetDateTime first, then convert to LocalDateTime in UTC
+            return OffsetDateTime.parse(timestamp, THREADS_TIMESTAMP_FORMATTER).toLocalDateTime();
+        } catch (Exception e) {
+            try {
+                // Fallback to ISO format
+                return LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            } catch (Exception e2) {
+                logger.warn("Failed to parse timestamp '{}', using current time", timestamp);
+                return LocalDateTime.now();
+            }
+        }
+    }
+
+    /**
+     * Parse media type from string
+     */
+    public static ThreadsPost.MediaType parseMediaType(String mediaType) {
+        if (mediaType == null) {
+            return ThreadsPost.MediaType.TEXT_POST;
+        }
+        return switch (mediaType.toUpperCase()) {
+            case "IMAGE" -> ThreadsPost.MediaType.IMAGE;
+            case "VIDEO" -> ThreadsPost.MediaType.VIDEO;
+            case "CAROUSEL_ALBUM" -> ThreadsPost.MediaType.CAROUSEL_ALBUM;
+            default -> ThreadsPost.MediaType.TEXT_POST;
+        };
+    }
+
+    // Private helpers
+
+    private static boolean startObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        return token == JsonToken.START_OBJECT;
+    }
+
+    /**
+     * Read the "id" of a nested object such as owner or replied_to
+     */
+    private static String readNestedId(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("id".equals(name)) {
+                id = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    private static void readPaging(JsonParser parser, GraphPage<?> page) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("cursors".equals(name) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String cursorName = parser.currentName();
+                    parser.nextToken();
+                    if ("after".equals(cursorName)) {
+                        page.afterCursor = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("next".equals(name)) {
+                page.hasNext = token == JsonToken.VALUE_STRING;
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static MetricElement readMetricElement(JsonParser parser, boolean captureBreakdowns) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        MetricElement metric = new MetricElement();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "name" -> metric.name = parser.getValueAsString();
+                case "period" -> metric.period = parser.getValueAsString("lifetime");
+                case "values" -> {
+                    if (token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            metric.values.add(readMetricValue(parser));
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "total_value" -> {
+                    if (captureBreakdowns && token == JsonToken.START_OBJECT) {
+                        metric.breakdowns = readBreakdowns(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return metric;
+    }
+
+    private static MetricValue readMetricValue(JsonParser parser) throws IOException {
+        MetricValue value = new MetricValue();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return value;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "value" -> value.value = parser.getValueAsLong();
+                case "end_time" -> value.endTime = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Copy total_value.breakdowns verbatim into a JSON string for storage
+     */
+    private static String readBreakdowns(JsonParser parser) throws IOException {
+        String breakdowns = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("breakdowns".equals(name)) {
+                StringWriter writer = new StringWriter();
+                try (JsonGenerator generator = parser.getCodec().getFactory().createGenerator(writer)) {
+                    generator.copyCurrentStructure(parser);
+                }
+                breakdowns = writer.toString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return breakdowns;
+    }
+
+    /**
+     * A single page of a cursor-paginated Graph API edge
+     */
+    public static class GraphPage<T> {
+        private final List<T> data = new ArrayList<>();
+        private String afterCursor;
+        private boolean hasNext;
+
+        public List<T> getData() {
+            return data;
+        }
+
+        public String getAfterCursor() {
+            return afterCursor;
+        }
+
+        public boolean hasNext() {
+            return hasNext && afterCursor != null;
+        }
+    }
+
+    /**
+     * The "error" object of a Graph API error response
+     */
+    public static class GraphError {
+        private String message;
+        private Integer code;
+        private Integer subcode;
+        private boolean isTransient;
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Integer getCode() {
+            return code;
+        }
+
+        public Integer getSubcode() {
+            return subcode;
+        }
+
+        public boolean isTransient() {
+            return isTransient;
+        }
+    }
+
+    private static class MetricElement {
+        private String name;
+        private String period = "lifetime";
+        private final List<MetricValue> values = new ArrayList<>(1);
+        private String breakdowns;
+    }
+
+    private static class MetricValue {
+        private long value;
+        private String endTime;
+    }
+}
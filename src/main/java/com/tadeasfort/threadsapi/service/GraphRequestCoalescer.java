@@ -0,0 +1,109 @@
+package com.tadeasfort.threadsapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical in-flight Graph API calls.
+ * <p>
+ * The first caller for a key performs the call; concurrent callers with the
+ * same key wait for and share its result instead of issuing their own request.
+ * Keys are only held while the call is in flight, so nothing is cached.
+ * Executed and coalesced calls are counted per endpoint in
+ * {@code threads.graph.calls}.
+ */
+@Component
+public class GraphRequestCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphRequestCoalescer.class);
+
+    private final ConcurrentHashMap<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public GraphRequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run the call, or wait for an identical call already in flight and return its
+     * result
+     */
+    public <T> T execute(String endpoint, String key, Supplier<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> existing = claim(endpoint, key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            T result = call.get();
+            future.complete(result);
+            return result;
+        } catch (Throwable t) {
+            // Errors too: followers must never be left waiting on a future nobody completes
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            release(key, future);
+        }
+    }
+
+    /**
+     * Claim a key for the given future. Returns null when the caller leads the
+     * call and must complete the future and then {@link #release} the key;
+     * otherwise returns the future of the call already in flight.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> claim(String endpoint, String key, CompletableFuture<T> future) {
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            counter(endpoint, "coalesced").increment();
+            logger.debug("Coalesced {} call with one already in flight", endpoint);
+            return existing;
+        }
+        counter(endpoint, "executed").increment();
+        return null;
+    }
+
+    /**
+     * Release a key claimed by a leading caller
+     */
+    public void release(String key, CompletableFuture<?> future) {
+        inFlight.remove(key, future);
+    }
+
+    /**
+     * Wait for a shared result, rethrowing the leader's failure unwrapped
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private Counter counter(String endpoint, String outcome) {
+        return counters.computeIfAbsent(endpoint + ":" + outcome, k -> Counter.builder("threads.graph.calls")
+                .description("Graph API calls by outcome of single-flight coalescing")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,456 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.GraphSimulatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Synthetic Graph API backend for load and latency testing (profile
+ * "graph-simulator").
+ * <p>
+ * Data is generated deterministically from the configured seed, the user
+ * derived from the access token and the object ID, so repeated runs see the
+ * same posts and metrics. Every request can be delayed by a log-normal latency,
+ * failed with a transient 500 or throttled with Graph error code 4 once the
+ * token exceeds its per-minute call budget. Usage headers are emitted the way
+ * Meta does, so the client's rate limiter is exercised as well.
+ */
+@Service
+@Profile("graph-simulator")
+public class GraphSimulatorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphSimulatorService.class);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").withZone(ZoneOffset.UTC);
+
+    // Token prefix carrying the simulated user ID (tokens issued by the simulator)
+    private static final String TOKEN_PREFIX = "SIM";
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double P99_Z = 2.326;
+
+    private static final String[] WORDS = { "threads", "java", "spring", "latency", "coffee", "design", "music",
+            "travel", "startup", "open", "source", "weekend", "launch", "data", "cloud", "ai", "photo", "city" };
+
+    @Autowired
+    private GraphSimulatorConfig config;
+
+    // Anchor for generated timestamps, so pages stay stable during a run
+    private final Instant epoch = Instant.now().truncatedTo(ChronoUnit.HOURS);
+
+    private final ConcurrentHashMap<String, CallWindow> callWindows = new ConcurrentHashMap<>();
+
+    /**
+     * Apply the configured latency and failure injection to a call made with the
+     * given token. Returns null when the call should be served, otherwise the
+     * error to respond with.
+     */
+    public SimulatedFailure beforeCall(String accessToken) {
+        delay();
+        return checkCall(accessToken);
+    }
+
+    /**
+     * Sleep for a sampled response latency
+     */
+    public void delay() {
+        sleep(sampleLatencyMillis());
+    }
+
+    /**
+     * Count a call against the token's budget and apply error injection,
+     * without delaying it (batch operations share the batch's latency)
+     */
+    public SimulatedFailure checkCall(String accessToken) {
+        if (accessToken == null || accessToken.isBlank()) {
+            return new SimulatedFailure(HttpStatus.BAD_REQUEST,
+                    error("An active access token must be used to query information", "OAuthException", 2500, false));
+        }
+
+        int limit = config.getCallsPerMinute();
+        if (limit > 0 && !window(accessToken).tryAcquire(limit)) {
+            return new SimulatedFailure(HttpStatus.BAD_REQUEST,
+                    error("Application request limit reached", "OAuthException", 4, false));
+        }
+
+        if (config.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < config.getErrorRate()) {
+            return new SimulatedFailure(HttpStatus.INTERNAL_SERVER_ERROR,
+                    error("An unexpected error has occurred. Please retry your request later.", "OAuthException", 2,
+                            true));
+        }
+        return null;
+    }
+
+    /**
+     * X-App-Usage / X-Business-Use-Case-Usage percentages for a token
+     */
+    public int getUsagePercent(String accessToken) {
+        int limit = config.getCallsPerMinute();
+        if (limit <= 0 || accessToken == null) {
+            return 0;
+        }
+        return Math.min(100, window(accessToken).count() * 100 / limit);
+    }
+
+    /**
+     * Simulated Threads user ID for an access token. Tokens issued by the
+     * simulator carry the ID; any other token is mapped to a stable ID.
+     */
+    public String userIdFor(String accessToken) {
+        if (accessToken.startsWith(TOKEN_PREFIX)) {
+            int end = TOKEN_PREFIX.length();
+            while (end < accessToken.length() && Character.isDigit(accessToken.charAt(end))) {
+                end++;
+            }
+            if (end > TOKEN_PREFIX.length()) {
+                return accessToken.substring(TOKEN_PREFIX.length(), end);
+            }
+        }
+        return String.valueOf(1_000_000_000L + Math.floorMod(accessToken.hashCode(), 1_000_000_000));
+    }
+
+    /**
+     * OAuth code exchange: issues a short-lived token for the user derived from
+     * the code
+     */
+    public Map<String, Object> exchangeCode(String code) {
+        String userId = userIdFor(code != null ? code : "");
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("access_token", TOKEN_PREFIX + userId + "-short");
+        response.put("user_id", userId);
+        return response;
+    }
+
+    /**
+     * Long-lived token exchange and refresh
+     */
+    public Map<String, Object> longLivedToken(String accessToken) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("access_token", TOKEN_PREFIX + userIdFor(accessToken) + "-long");
+        response.put("token_type", "bearer");
+        response.put("expires_in", 5_184_000L);
+        return response;
+    }
+
+    /**
+     * /me profile fields
+     */
+    public Map<String, Object> profile(String accessToken, String fields) {
+        String userId = userIdFor(accessToken);
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("id", userId);
+        if (fields == null || fields.contains("username")) {
+            profile.put("username", "sim_user_" + userId);
+        }
+        if (fields == null || fields.contains("name")) {
+            profile.put("name", "Simulated User " + userId);
+        }
+        if (fields != null && fields.contains("threads_profile_picture_url")) {
+            profile.put("threads_profile_picture_url", "https://example.com/avatars/" + userId + ".jpg");
+        }
+        if (fields != null && fields.contains("threads_biography")) {
+            profile.put("threads_biography", "Synthetic account served by the Graph API simulator");
+        }
+        if (fields != null && fields.contains("recently_searched_keywords")) {
+            Random random = random(userId.hashCode());
+            List<Map<String, Object>> keywords = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                keywords.add(Map.of("query", WORDS[random.nextInt(WORDS.length)],
+                        "timestamp", epoch.minus(i, ChronoUnit.HOURS).toEpochMilli()));
+            }
+            profile.put("recently_searched_keywords", keywords);
+        }
+        return profile;
+    }
+
+    /**
+     * A page of /me/threads, newest first, with an opaque offset cursor
+     */
+    public Map<String, Object> postsPage(String accessToken, int limit, String after, String nextUrlBase) {
+        String userId = userIdFor(accessToken);
+        int total = config.getPostsPerUser();
+        int pageSize = Math.max(1, Math.min(limit, 100));
+        int offset = Math.min(decodeCursor(after), total);
+        int end = Math.min(offset + pageSize, total);
+
+        List<Map<String, Object>> data = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            data.add(post(userId, i));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("data", data);
+        if (!data.isEmpty()) {
+            Map<String, Object> cursors = new LinkedHashMap<>();
+            cursors.put("before", encodeCursor(offset));
+            cursors.put("after", encodeCursor(end));
+            Map<String, Object> paging = new LinkedHashMap<>();
+            paging.put("cursors", cursors);
+            if (end < total) {
+                String separator = nextUrlBase.contains("?") ? "&" : "?";
+                paging.put("next", nextUrlBase + separator + "after=" + encodeCursor(end));
+            }
+            response.put("paging", paging);
+        }
+        return response;
+    }
+
+    /**
+     * Keyword search results; the result set depends only on the query
+     */
+    public Map<String, Object> keywordSearch(String query) {
+        String q = query != null ? query : "";
+        Random random = random(q.toLowerCase().hashCode());
+        List<Map<String, Object>> data = new ArrayList<>(config.getSearchResults());
+        for (int i = 0; i < config.getSearchResults(); i++) {
+            Map<String, Object> post = new LinkedHashMap<>();
+            post.put("id", objectId(q.toLowerCase().hashCode(), i));
+            post.put("text", sentence(random) + " #" + q + " " + sentence(random));
+            post.put("media_type", "TEXT_POST");
+            post.put("permalink", "https://www.threads.net/@sim_author_" + random.nextInt(10_000) + "/post/" + i);
+            post.put("timestamp", TIMESTAMP_FORMATTER.format(epoch.minus(random.nextInt(72 * 60), ChronoUnit.MINUTES)));
+            post.put("username", "sim_author_" + random.nextInt(10_000));
+            post.put("has_replies", random.nextBoolean());
+            post.put("is_quote_post", random.nextInt(10) == 0);
+            post.put("is_reply", false);
+            data.add(post);
+        }
+        return Map.of("data", data);
+    }
+
+    /**
+     * Media insights of a single post
+     */
+    public Map<String, Object> postInsights(String postId, String metrics) {
+        Random random = random(postId.hashCode());
+        long views = 50 + random.nextInt(20_000);
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (String metric : metricNames(metrics, "views,likes,replies,reposts,quotes")) {
+            long value = switch (metric) {
+                case "views" -> views;
+                case "likes" -> views * random.nextInt(8) / 100;
+                case "replies" -> views * random.nextInt(3) / 100;
+                default -> views * random.nextInt(2) / 100;
+            };
+            data.add(metric(metric, "lifetime", List.of(Map.of("value", value))));
+        }
+        return Map.of("data", data);
+    }
+
+    /**
+     * Account level insights: daily views, lifetime totals for the rest
+     */
+    public Map<String, Object> userInsights(String accessToken, String metrics) {
+        String userId = userIdFor(accessToken);
+        Random random = random(userId.hashCode());
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (String metric : metricNames(metrics, "views,likes,replies,quotes,clicks,followers_count")) {
+            if ("views".equals(metric)) {
+                List<Map<String, Object>> values = new ArrayList<>();
+                for (int day = 6; day >= 0; day--) {
+                    values.add(Map.of("value", 100 + random.nextInt(5_000),
+                            "end_time", TIMESTAMP_FORMATTER.format(epoch.minus(day, ChronoUnit.DAYS))));
+                }
+                data.add(metric(metric, "day", values));
+            } else {
+                Map<String, Object> element = metric(metric, "lifetime", List.of());
+                element.put("total_value", Map.of("value", random.nextInt(10_000)));
+                data.add(element);
+            }
+        }
+        return Map.of("data", data);
+    }
+
+    /**
+     * Media container creation and publishing both answer with a fresh ID
+     */
+    public Map<String, Object> createObject(String accessToken) {
+        return Map.of("id", objectId(userIdFor(accessToken).hashCode(),
+                ThreadLocalRandom.current().nextInt(1_000_000, 9_999_999)));
+    }
+
+    private Map<String, Object> post(String userId, int index) {
+        Random random = random(userId.hashCode() * 31L + index);
+        Map<String, Object> post = new LinkedHashMap<>();
+        String id = objectId(userId.hashCode(), index);
+        post.put("id", id);
+        post.put("media_product_type", "THREADS");
+        post.put("media_type", random.nextInt(5) == 0 ? "IMAGE" : "TEXT_POST");
+        post.put("permalink", "https://www.threads.net/@sim_user_" + userId + "/post/" + id);
+        post.put("owner", Map.of("id", userId));
+        post.put("username", "sim_user_" + userId);
+        post.put("text", sentence(random));
+        post.put("timestamp", TIMESTAMP_FORMATTER.format(epoch.minus(index * 3L, ChronoUnit.HOURS)));
+        post.put("shortcode", Long.toString(Math.abs(random.nextLong()), 36));
+        post.put("is_quote_post", false);
+        post.put("has_replies", random.nextBoolean());
+        post.put("is_reply", false);
+        return post;
+    }
+
+    private Map<String, Object> metric(String name, String period, List<Map<String, Object>> values) {
+        Map<String, Object> element = new LinkedHashMap<>();
+        element.put("name", name);
+        element.put("period", period);
+        element.put("values", values);
+        element.put("title", name);
+        element.put("id", name + "/" + period);
+        return element;
+    }
+
+    private List<String> metricNames(String metrics, String defaults) {
+        List<String> names = new ArrayList<>();
+        for (String metric : (metrics != null && !metrics.isBlank() ? metrics : defaults).split(",")) {
+            if (!metric.isBlank()) {
+                names.add(metric.trim());
+            }
+        }
+        return names;
+    }
+
+    private String sentence(Random random) {
+        StringBuilder text = new StringBuilder();
+        int words = 4 + random.nextInt(12);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Numeric object ID, so the client sees the same shape as real Graph IDs
+     */
+    private String objectId(long scope, int index) {
+        return "18" + String.format("%09d", Math.floorMod(scope, 1_000_000_000L)) + String.format("%07d", index);
+    }
+
+    private Random random(long salt) {
+        return new Random(config.getSeed() * 1_000_003L + salt);
+    }
+
+    private String encodeCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("offset:" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return Math.max(0, Integer.parseInt(decoded.substring(decoded.indexOf(':') + 1)));
+        } catch (IllegalArgumentException e) {
+            logger.debug("Invalid simulator cursor '{}', starting from the top", cursor);
+            return 0;
+        }
+    }
+
+    private long sampleLatencyMillis() {
+        double median = Math.max(0, config.getLatencyMedian().toMillis());
+        if (median == 0) {
+            return 0;
+        }
+        double p99 = Math.max(median, config.getLatencyP99().toMillis());
+        double sigma = Math.log(p99 / median) / P99_Z;
+        return Math.round(median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CallWindow window(String accessToken) {
+        return callWindows.computeIfAbsent(userIdFor(accessToken), key -> new CallWindow());
+    }
+
+    private Map<String, Object> error(String message, String type, int code, boolean isTransient) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("message", message);
+        error.put("type", type);
+        error.put("code", code);
+        error.put("is_transient", isTransient);
+        error.put("fbtrace_id", "SIM" + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        return Map.of("error", error);
+    }
+
+    /**
+     * Error response produced by failure injection
+     */
+    public static class SimulatedFailure {
+        private final HttpStatus status;
+        private final Map<String, Object> body;
+
+        public SimulatedFailure(HttpStatus status, Map<String, Object> body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public HttpStatus getStatus() {
+            return status;
+        }
+
+        public Map<String, Object> getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Fixed one-minute call window of a simulated user
+     */
+    private static class CallWindow {
+        private long minute;
+        private int count;
+
+        synchronized boolean tryAcquire(int limit) {
+            roll();
+            if (count >= limit) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+
+        synchronized int count() {
+            roll();
+            return count;
+        }
+
+        private void roll() {
+            long current = System.currentTimeMillis() / 60_000;
+            if (current != minute) {
+                minute = current;
+                count = 0;
+            }
+        }
+    }
+}
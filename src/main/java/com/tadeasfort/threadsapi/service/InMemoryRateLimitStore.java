@@ -0,0 +1,25 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.UserRateLimitInfo;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-instance store: the user's window counter is the whole quota
+ */
+@Component
+@ConditionalOnProperty(name = "threads.rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    @Override
+    public long tryReserve(UserRateLimitInfo userInfo, QuotaType type, long nowMillis, long amount, long limit,
+            boolean partial) {
+        return userInfo.getCounter(type).tryReserve(nowMillis, amount, limit, partial);
+    }
+
+    @Override
+    public void release(UserRateLimitInfo userInfo, QuotaType type, long epochMinute, long amount) {
+        userInfo.getCounter(type).release(epochMinute, amount);
+    }
+}
@@ -10,8 +10,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +39,12 @@ public class InteractionQueueService {
     @Autowired
     private DiscoveredPostRepository discoveredPostRepository;
 
+    @Autowired
+    private RateLimitForecastService forecastService;
+
+    @Autowired
+    private RetentionService retentionService;
+
     /**
      * Add a discovered post to the interaction queue
      */
@@ -95,17 +103,25 @@ public class InteractionQueueService {
     }
 
     /**
-     * Process queue items ready for execution
+     * Process queue items ready for execution. While the user's call or reply
+     * quota is forecast to run out soon, only high-priority items are handed out.
      */
     public List<InteractionQueue> processReadyItems(String userId, int limit) {
+        int minPriority = forecastService.shouldDeferLowValueWork(userId,
+                ThreadsRateLimitService.QuotaType.API_CALLS, ThreadsRateLimitService.QuotaType.REPLIES)
+                        ? HIGH_PRIORITY
+                        : DEFAULT_PRIORITY;
+
         List<InteractionQueue> readyItems = queueRepository.findReadyForExecution(
                 InteractionQueue.QueueStatus.PENDING, LocalDateTime.now())
                 .stream()
                 .filter(item -> item.getUserId().equals(userId))
+                .filter(item -> (item.getPriority() != null ? item.getPriority() : DEFAULT_PRIORITY) >= minPriority)
                 .limit(limit)
                 .collect(Collectors.toList());
 
-        logger.info("Processing {} ready queue items for user {}", readyItems.size(), userId);
+        logger.info("Processing {} ready queue items for user {}{}", readyItems.size(), userId,
+                minPriority > DEFAULT_PRIORITY ? " (low-priority items deferred by quota forecast)" : "");
         return readyItems;
     }
 
@@ -223,13 +239,10 @@ public class InteractionQueueService {
     /**
      * Cleanup old queue items
      */
+    // Not in the class transaction, so the purge commits chunk by chunk
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void cleanupOldQueueItems(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-
-        queueRepository.deleteByStatusAndExecutedAtBefore(InteractionQueue.QueueStatus.COMPLETED, cutoffDate);
-        queueRepository.deleteByStatusAndExecutedAtBefore(InteractionQueue.QueueStatus.FAILED, cutoffDate);
-
-        logger.info("Cleaned up queue items older than {} days", daysToKeep);
+        retentionService.purge("interaction_queue", Duration.ofDays(daysToKeep));
     }
 
     /**
@@ -0,0 +1,220 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
+import com.tadeasfort.threadsapi.entity.RateLimitLease;
+import com.tadeasfort.threadsapi.repository.RateLimitLeaseRepository;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.UserRateLimitInfo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Quota shared between instances through the {@code rate_limit_leases} table.
+ * <p>
+ * Each instance leases small chunks of a user's quota with a guarded UPDATE
+ * that only succeeds while the window total of all instances stays within the
+ * limit, and serves reservations from its local lease until it runs out, so
+ * most checks never touch the database. Unused units of a lease are handed
+ * back after {@code threads.rate-limit.lease-ttl} and on shutdown, so other
+ * instances can use them; if that fails they stay counted until they leave
+ * the window, which errs on the safe side.
+ * If the database cannot be reached, reservations that need a new lease are
+ * denied. A lease is shared by all quota classes of the user, so a lower class
+ * may use up to one chunk of units leased under a higher class's ceiling.
+ * <p>
+ * Reservations suspend the caller's transaction and lease in short
+ * transactions of their own, so a lease is committed even if the caller's
+ * work rolls back, and a failed lease attempt cannot mark that work
+ * rollback-only. A suspended transaction keeps its connection: on a
+ * single-connection pool, reserve before starting one (as
+ * {@code RateLimitAspect} does).
+ */
+@Component
+@ConditionalOnProperty(name = "threads.rate-limit.store", havingValue = "jdbc")
+public class JdbcRateLimitStore implements RateLimitStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcRateLimitStore.class);
+
+    private static final long WINDOW_MINUTES = ThreadsRateLimitService.RATE_LIMIT_WINDOW_HOURS * 60;
+
+    @Autowired
+    private RateLimitLeaseRepository leaseRepository;
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Leased but unused units per user and quota
+    private final ConcurrentHashMap<String, LocalLease> leases = new ConcurrentHashMap<>();
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long tryReserve(UserRateLimitInfo userInfo, QuotaType type, long nowMillis, long amount, long limit,
+            boolean partial) {
+        if (amount <= 0) {
+            return 0;
+        }
+        LocalLease lease = leases.computeIfAbsent(userInfo.getUserId() + ":" + type,
+                k -> new LocalLease(userInfo.getUserId(), type));
+
+        long granted;
+        // A lock rather than synchronized: leasing blocks on the database and
+        // callers run on virtual threads
+        lease.lock.lock();
+        try {
+            if (nowMillis - lease.leasedAt > rateLimitConfig.getLeaseTtl().toMillis()) {
+                returnUnused(lease);
+            }
+            if (lease.units < amount) {
+                long needed = amount - lease.units;
+                long chunk = Math.max(needed,
+                        Math.max(1, Math.min(rateLimitConfig.getLeaseSize(), userInfo.getLimit(type) / 100)));
+                long leased = lease(lease, nowMillis / 60_000L, chunk, partial ? 1 : needed, limit);
+                if (leased > 0) {
+                    lease.units += leased;
+                    lease.leasedAt = nowMillis;
+                    lease.epochMinute = nowMillis / 60_000L;
+                }
+            }
+            granted = partial ? Math.min(amount, lease.units) : (lease.units >= amount ? amount : 0);
+            lease.units -= granted;
+        } finally {
+            lease.lock.unlock();
+        }
+
+        if (granted > 0) {
+            userInfo.getCounter(type).add(nowMillis, granted);
+        }
+        return granted;
+    }
+
+    @Override
+    public void release(UserRateLimitInfo userInfo, QuotaType type, long epochMinute, long amount) {
+        userInfo.getCounter(type).release(epochMinute, amount);
+        LocalLease lease = leases.get(userInfo.getUserId() + ":" + type);
+        if (lease == null || amount <= 0) {
+            return;
+        }
+        lease.lock.lock();
+        try {
+            lease.units += amount;
+        } finally {
+            lease.lock.unlock();
+        }
+    }
+
+    /**
+     * Drop lease rows that have left the window
+     */
+    @Scheduled(fixedDelay = 3600000, initialDelay = 60000)
+    public void deleteExpiredLeases() {
+        try {
+            long oldestMinute = System.currentTimeMillis() / 60_000L - WINDOW_MINUTES;
+            Integer deleted = transactionTemplate.execute(status -> leaseRepository.deleteExpired(oldestMinute));
+            logger.debug("Deleted {} expired rate limit lease rows", deleted);
+        } catch (DataAccessException e) {
+            logger.warn("Failed to delete expired rate limit leases: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hand unused units back so other instances can use them
+     */
+    @PreDestroy
+    public void returnUnusedLeases() {
+        for (LocalLease lease : leases.values()) {
+            lease.lock.lock();
+            try {
+                returnUnused(lease);
+            } finally {
+                lease.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Give a lease's unused units back to its row; the caller holds the lease
+     * lock. The units are dropped locally either way.
+     */
+    private void returnUnused(LocalLease lease) {
+        if (lease.units <= 0) {
+            return;
+        }
+        long units = lease.units;
+        lease.units = 0;
+        try {
+            transactionTemplate.executeWithoutResult(status -> leaseRepository.returnLeased(
+                    lease.userId, lease.type, lease.epochMinute, units));
+        } catch (DataAccessException | TransactionException e) {
+            logger.warn("Failed to return unused {} lease of user {}: {}", lease.type, lease.userId,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Lease {@code preferred} units, or as many as are left but at least
+     * {@code minimum}; returns the units leased, 0 if none
+     */
+    private long lease(LocalLease lease, long epochMinute, long preferred, long minimum, long limit) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                Long leased = transactionTemplate.execute(status -> {
+                    long oldestMinute = epochMinute - WINDOW_MINUTES;
+                    RateLimitLease row = leaseRepository
+                            .findByUserIdAndQuotaTypeAndEpochMinute(lease.userId, lease.type, epochMinute)
+                            .orElseGet(() -> leaseRepository.saveAndFlush(
+                                    new RateLimitLease(lease.userId, lease.type, epochMinute)));
+                    if (leaseRepository.leaseWithinLimit(row.getId(), lease.userId, lease.type, oldestMinute,
+                            preferred, limit) == 1) {
+                        return preferred;
+                    }
+                    long available = limit - leaseRepository.sumLeased(lease.userId, lease.type, oldestMinute);
+                    long amount = Math.min(preferred, available);
+                    if (amount < minimum || amount <= 0) {
+                        return 0L;
+                    }
+                    return leaseRepository.leaseWithinLimit(row.getId(), lease.userId, lease.type, oldestMinute,
+                            amount, limit) == 1 ? amount : 0L;
+                });
+                return leased != null ? leased : 0;
+            } catch (DataIntegrityViolationException e) {
+                // Another instance created this minute's row first; retry with it
+                logger.debug("Lease row of user {} created concurrently, retrying", lease.userId);
+            } catch (DataAccessException | TransactionException e) {
+                logger.warn("Failed to lease {} quota for user {}: {}", lease.type, lease.userId, e.getMessage());
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private static class LocalLease {
+        private final String userId;
+        private final QuotaType type;
+        private final ReentrantLock lock = new ReentrantLock();
+        private long units;
+        private long leasedAt;
+        private long epochMinute;
+
+        private LocalLease(String userId, QuotaType type) {
+            this.userId = userId;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces background keyword searches so each user's daily quota is spread
+ * evenly over 24 hours instead of being spent in a single scheduler run.
+ * <p>
+ * Each user has a token bucket refilled at quota / 24h with a small burst
+ * capacity, implemented as a generic cell rate algorithm: a single atomic
+ * "theoretical arrival time" per user, advanced by one emission interval per
+ * token with a CAS, so acquiring never locks. Interactive searches are not
+ * paced; they only count against the hard quota.
+ */
+@Component
+public class KeywordSearchPacer {
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    private final ConcurrentHashMap<String, AtomicLong> arrivalTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Take a token for a background search. Returns 0 when granted, otherwise
+     * the milliseconds until the next token is available.
+     */
+    public long tryAcquire(String userId) {
+        if (!rateLimitConfig.isKeywordPacingEnabled()) {
+            return 0;
+        }
+
+        long interval = emissionIntervalNanos();
+        long tolerance = interval * (Math.max(1, rateLimitConfig.getKeywordPacingBurst()) - 1);
+        AtomicLong arrivalTime = arrivalTimes.computeIfAbsent(userId, id -> new AtomicLong(Long.MIN_VALUE));
+
+        while (true) {
+            long now = System.nanoTime();
+            long stored = arrivalTime.get();
+            long theoretical = stored == Long.MIN_VALUE || stored - now < 0 ? now : stored;
+            long wait = theoretical - now - tolerance;
+            if (wait > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+            if (arrivalTime.compareAndSet(stored, theoretical + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Tokens currently available to a user (for status reporting)
+     */
+    public int getAvailableTokens(String userId) {
+        int burst = Math.max(1, rateLimitConfig.getKeywordPacingBurst());
+        AtomicLong arrivalTime = arrivalTimes.get(userId);
+        if (arrivalTime == null || arrivalTime.get() == Long.MIN_VALUE) {
+            return burst;
+        }
+        long backlog = Math.max(0, arrivalTime.get() - System.nanoTime());
+        return (int) Math.max(0, burst - (backlog + emissionIntervalNanos() - 1) / emissionIntervalNanos());
+    }
+
+    private long emissionIntervalNanos() {
+        return TimeUnit.HOURS.toNanos(ThreadsRateLimitService.RATE_LIMIT_WINDOW_HOURS)
+                / ThreadsRateLimitService.KEYWORD_QUERIES_PER_24H;
+    }
+}
@@ -0,0 +1,236 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.UserRateLimitInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forecasts when each of a user's quotas runs out.
+ * <p>
+ * Consumption rates are exponentially weighted moving averages of the
+ * per-minute window buckets, one reacting within minutes and one over hours;
+ * the projection uses the higher of the two. Buckets leaving the sliding
+ * window free quota again, so the projection walks the next 24h minute by
+ * minute instead of dividing the remaining quota by the rate.
+ */
+@Service
+public class RateLimitForecastService {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    // Time constants of the short- and long-term consumption rates, in minutes
+    private static final double SHORT_TERM_MINUTES = 15;
+    private static final double LONG_TERM_MINUTES = 180;
+
+    @Autowired
+    private ThreadsRateLimitService rateLimitService;
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    /**
+     * Forecast of all quotas of a user
+     */
+    public UserForecast forecast(String userId) {
+        UserRateLimitInfo userInfo = rateLimitService.getUserRateLimitInfo(userId);
+        long now = System.currentTimeMillis();
+        List<QuotaForecast> quotas = new ArrayList<>();
+        boolean defer = false;
+        for (QuotaType type : QuotaType.values()) {
+            QuotaForecast forecast = forecast(userInfo, type, now);
+            quotas.add(forecast);
+            defer |= isTight(forecast) && (type == QuotaType.API_CALLS || type == QuotaType.KEYWORD_QUERIES);
+        }
+        return new UserForecast(userId, toDateTime(now), defer, quotas);
+    }
+
+    /**
+     * Whether low-value background work drawing on these quotas should wait:
+     * true when any of them is projected to run out within the defer horizon or
+     * has less headroom than the configured minimum
+     */
+    public boolean shouldDeferLowValueWork(String userId, QuotaType... types) {
+        UserRateLimitInfo userInfo = rateLimitService.getUserRateLimitInfo(userId);
+        long now = System.currentTimeMillis();
+        for (QuotaType type : types) {
+            if (isTight(forecast(userInfo, type, now))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isTight(QuotaForecast forecast) {
+        if (forecast.getHeadroomPercent() < rateLimitConfig.getForecastMinHeadroomPercent()) {
+            return true;
+        }
+        Long minutes = forecast.getMinutesToExhaustion();
+        return minutes != null && minutes <= rateLimitConfig.getForecastDeferHorizon().toMinutes();
+    }
+
+    private QuotaForecast forecast(UserRateLimitInfo userInfo, QuotaType type, long now) {
+        SlidingWindowCounter counter = userInfo.getCounter(type);
+        int windowMinutes = counter.getWindowMinutes();
+        long currentMinute = now / MINUTE_MILLIS;
+        double shortDecay = Math.exp(-1 / SHORT_TERM_MINUTES);
+        double longDecay = Math.exp(-1 / LONG_TERM_MINUTES);
+
+        // Usage freed when each bucket leaves the window, by minutes from now
+        long[] freedAt = new long[windowMinutes + 1];
+        double[] rates = new double[2];
+        long[] used = new long[1];
+        counter.forEachBucket(now, (epochMinute, count) -> {
+            long age = Math.max(0, currentMinute - epochMinute);
+            rates[0] += count * Math.pow(shortDecay, age);
+            rates[1] += count * Math.pow(longDecay, age);
+            used[0] += count;
+            int expiresIn = (int) Math.min(windowMinutes, Math.max(1, epochMinute + windowMinutes - currentMinute));
+            freedAt[expiresIn] += count;
+        });
+        double shortTermRate = rates[0] * (1 - shortDecay);
+        double longTermRate = rates[1] * (1 - longDecay);
+        double projectedRate = Math.max(shortTermRate, longTermRate);
+
+        long limit = userInfo.getLimit(type);
+        long remaining = Math.max(0, limit - used[0]);
+
+        // Walk the next 24h: the highest steady rate that never exceeds the limit,
+        // and the first minute the projected usage reaches it
+        Long minutesToExhaustion = remaining == 0 ? 0L : null;
+        double safeRate = Double.MAX_VALUE;
+        long stillCounted = used[0];
+        for (int minute = 1; minute <= windowMinutes; minute++) {
+            stillCounted -= freedAt[minute];
+            safeRate = Math.min(safeRate, (double) (limit - stillCounted) / minute);
+            if (minutesToExhaustion == null && stillCounted + projectedRate * minute >= limit) {
+                minutesToExhaustion = (long) minute;
+            }
+        }
+
+        LocalDateTime exhaustionAt = minutesToExhaustion != null
+                ? toDateTime(now + minutesToExhaustion * MINUTE_MILLIS)
+                : null;
+        double headroomPercent = limit > 0 ? remaining * 100.0 / limit : 0;
+        return new QuotaForecast(type, used[0], limit, remaining, headroomPercent, shortTermRate, longTermRate,
+                projectedRate, Math.max(0, safeRate), minutesToExhaustion, exhaustionAt);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    public static class UserForecast {
+        private final String userId;
+        private final LocalDateTime generatedAt;
+        private final boolean deferLowValueWork;
+        private final List<QuotaForecast> quotas;
+
+        public UserForecast(String userId, LocalDateTime generatedAt, boolean deferLowValueWork,
+                List<QuotaForecast> quotas) {
+            this.userId = userId;
+            this.generatedAt = generatedAt;
+            this.deferLowValueWork = deferLowValueWork;
+            this.quotas = quotas;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public LocalDateTime getGeneratedAt() {
+            return generatedAt;
+        }
+
+        public boolean isDeferLowValueWork() {
+            return deferLowValueWork;
+        }
+
+        public List<QuotaForecast> getQuotas() {
+            return quotas;
+        }
+    }
+
+    public static class QuotaForecast {
+        private final QuotaType quotaType;
+        private final long used;
+        private final long limit;
+        private final long remaining;
+        private final double headroomPercent;
+        private final double shortTermRatePerMinute;
+        private final double longTermRatePerMinute;
+        private final double projectedRatePerMinute;
+        private final double safeRatePerMinute;
+        private final Long minutesToExhaustion;
+        private final LocalDateTime exhaustionAt;
+
+        public QuotaForecast(QuotaType quotaType, long used, long limit, long remaining, double headroomPercent,
+                double shortTermRatePerMinute, double longTermRatePerMinute, double projectedRatePerMinute,
+                double safeRatePerMinute, Long minutesToExhaustion, LocalDateTime exhaustionAt) {
+            this.quotaType = quotaType;
+            this.used = used;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.headroomPercent = headroomPercent;
+            this.shortTermRatePerMinute = shortTermRatePerMinute;
+            this.longTermRatePerMinute = longTermRatePerMinute;
+            this.projectedRatePerMinute = projectedRatePerMinute;
+            this.safeRatePerMinute = safeRatePerMinute;
+            this.minutesToExhaustion = minutesToExhaustion;
+            this.exhaustionAt = exhaustionAt;
+        }
+
+        public QuotaType getQuotaType() {
+            return quotaType;
+        }
+
+        public long getUsed() {
+            return used;
+        }
+
+        public long getLimit() {
+            return limit;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+
+        public double getHeadroomPercent() {
+            return headroomPercent;
+        }
+
+        public double getShortTermRatePerMinute() {
+            return shortTermRatePerMinute;
+        }
+
+        public double getLongTermRatePerMinute() {
+            return longTermRatePerMinute;
+        }
+
+        public double getProjectedRatePerMinute() {
+            return projectedRatePerMinute;
+        }
+
+        // Highest steady rate that stays within the limit over the next 24h
+        public double getSafeRatePerMinute() {
+            return safeRatePerMinute;
+        }
+
+        // Null when the quota is not projected to run out within 24h
+        public Long getMinutesToExhaustion() {
+            return minutesToExhaustion;
+        }
+
+        public LocalDateTime getExhaustionAt() {
+            return exhaustionAt;
+        }
+    }
+}
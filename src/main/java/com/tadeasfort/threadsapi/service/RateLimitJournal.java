@@ -0,0 +1,69 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * In-memory buffer of usage recorded by {@link ThreadsRateLimitService} since
+ * the last flush. Appending never touches the database; the buffer is drained
+ * periodically into the persisted usage journal by
+ * {@link RateLimitPersistenceService}.
+ */
+@Component
+public class RateLimitJournal {
+
+    private final ConcurrentLinkedQueue<Usage> pending = new ConcurrentLinkedQueue<>();
+
+    public void append(String userId, QuotaType type, long nowMillis, long amount) {
+        pending.add(new Usage(userId, type, nowMillis / 60_000L, amount));
+    }
+
+    /**
+     * Remove and return everything appended so far
+     */
+    public List<Usage> drain() {
+        List<Usage> drained = new ArrayList<>();
+        Usage usage;
+        while ((usage = pending.poll()) != null) {
+            drained.add(usage);
+        }
+        return drained;
+    }
+
+    /**
+     * Usage of one quota in one epoch minute
+     */
+    public static class Usage {
+        private final String userId;
+        private final QuotaType type;
+        private final long epochMinute;
+        private final long amount;
+
+        public Usage(String userId, QuotaType type, long epochMinute, long amount) {
+            this.userId = userId;
+            this.type = type;
+            this.epochMinute = epochMinute;
+            this.amount = amount;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public QuotaType getType() {
+            return type;
+        }
+
+        public long getEpochMinute() {
+            return epochMinute;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+    }
+}
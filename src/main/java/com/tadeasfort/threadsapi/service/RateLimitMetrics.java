@@ -0,0 +1,131 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.UserRateLimitInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-user quota metrics: {@code threads.rate_limit.remaining} and
+ * {@code threads.rate_limit.limit} gauges and a
+ * {@code threads.rate_limit.consumed} counter, tagged by user and quota.
+ * <p>
+ * Only the first {@code threads.rate-limit.metrics-max-users} users get their
+ * own series; usage of any further user is counted under {@code user="other"}
+ * and has no gauges, so the number of series stays bounded. Series of users
+ * dropped from the limiter are removed again.
+ */
+@Component
+public class RateLimitMetrics {
+
+    static final String OTHER_USERS = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final RateLimitConfig rateLimitConfig;
+
+    // Individually tagged users and their meters
+    private final Map<String, List<Meter>> taggedUsers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    // Slots taken under the cap, reserved before a user is added so concurrent
+    // registrations cannot overshoot it
+    private final AtomicInteger taggedCount = new AtomicInteger();
+
+    public RateLimitMetrics(MeterRegistry meterRegistry, RateLimitConfig rateLimitConfig) {
+        this.meterRegistry = meterRegistry;
+        this.rateLimitConfig = rateLimitConfig;
+    }
+
+    /**
+     * Register the gauges of a newly tracked user, if within the cardinality cap
+     */
+    public void register(UserRateLimitInfo userInfo) {
+        String userId = userInfo.getUserId();
+        if (taggedUsers.containsKey(userId) || !reserveSlot()) {
+            return;
+        }
+
+        List<Meter> meters = new CopyOnWriteArrayList<>();
+        if (taggedUsers.putIfAbsent(userId, meters) != null) {
+            taggedCount.decrementAndGet();
+            return;
+        }
+        for (QuotaType type : QuotaType.values()) {
+            String quota = quotaTag(type);
+            meters.add(Gauge.builder("threads.rate_limit.remaining", userInfo,
+                    info -> info.getRemaining(type, System.currentTimeMillis()))
+                    .description("Quota left in the user's sliding 24h window")
+                    .tag("user", userId)
+                    .tag("quota", quota)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("threads.rate_limit.limit", userInfo, info -> info.getLimit(type))
+                    .description("Quota of the user's sliding 24h window")
+                    .tag("user", userId)
+                    .tag("quota", quota)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Count usage committed against a quota
+     */
+    public void recordUsage(String userId, QuotaType type, long amount) {
+        String user = taggedUsers.containsKey(userId) ? userId : OTHER_USERS;
+        counters.computeIfAbsent(user + ":" + type, k -> {
+            Counter counter = Counter.builder("threads.rate_limit.consumed")
+                    .description("Quota units consumed")
+                    .tag("user", user)
+                    .tag("quota", quotaTag(type))
+                    .register(meterRegistry);
+            List<Meter> meters = taggedUsers.get(user);
+            if (meters != null) {
+                meters.add(counter);
+            }
+            return counter;
+        }).increment(amount);
+    }
+
+    /**
+     * Remove the series of a user no longer tracked by the limiter, freeing its
+     * slot under the cap
+     */
+    public void unregister(String userId) {
+        List<Meter> meters = taggedUsers.remove(userId);
+        if (meters == null) {
+            return;
+        }
+        taggedCount.decrementAndGet();
+        for (QuotaType type : QuotaType.values()) {
+            counters.remove(userId + ":" + type);
+        }
+        meters.forEach(meterRegistry::remove);
+    }
+
+    private boolean reserveSlot() {
+        int max = rateLimitConfig.getMetricsMaxUsers();
+        while (true) {
+            int taken = taggedCount.get();
+            if (taken >= max) {
+                return false;
+            }
+            if (taggedCount.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static String quotaTag(QuotaType type) {
+        return type.name().toLowerCase(Locale.ROOT);
+    }
+}
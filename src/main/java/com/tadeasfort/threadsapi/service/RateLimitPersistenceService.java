@@ -0,0 +1,221 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
+import com.tadeasfort.threadsapi.entity.RateLimitJournalEntry;
+import com.tadeasfort.threadsapi.entity.RateLimitSnapshot;
+import com.tadeasfort.threadsapi.repository.RateLimitJournalRepository;
+import com.tadeasfort.threadsapi.repository.RateLimitSnapshotRepository;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.UserRateLimitInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind persistence of rate limiter state.
+ * <p>
+ * Recording usage only appends to the in-memory {@link RateLimitJournal}. The
+ * buffer is flushed to the {@code rate_limit_journal} table every few seconds,
+ * and every snapshot interval each user's non-empty window buckets are written
+ * to {@code rate_limit_snapshots} and the journal entries they cover are
+ * truncated in the same transaction. On startup the snapshots are loaded and
+ * the remaining journal replayed. Usage recorded while a snapshot is being
+ * taken may be replayed twice after a crash, which errs on the safe side of
+ * the quota.
+ */
+@Service
+public class RateLimitPersistenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitPersistenceService.class);
+
+    @Autowired
+    private ThreadsRateLimitService rateLimitService;
+
+    @Autowired
+    private RateLimitJournal journal;
+
+    @Autowired
+    private RateLimitSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private RateLimitJournalRepository journalRepository;
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Reload limiter state before the application starts serving traffic
+     */
+    @PostConstruct
+    public void restore() {
+        if (!rateLimitConfig.isPersistenceEnabled()) {
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            int users = 0;
+            int entries = 0;
+            for (RateLimitSnapshot snapshot : snapshotRepository.findAll()) {
+                UserRateLimitInfo userInfo = rateLimitService.getUserRateLimitInfo(snapshot.getUserId());
+                if (snapshot.getImpressions() != null) {
+                    userInfo.updateImpressions(snapshot.getImpressions());
+                }
+                userInfo.restoreLastApiCall(snapshot.getLastApiCall());
+                decodeBuckets(userInfo, snapshot.getUsageBuckets());
+                users++;
+            }
+
+            for (RateLimitJournalEntry entry : journalRepository.findAllByOrderByIdAsc()) {
+                rateLimitService.getUserRateLimitInfo(entry.getUserId())
+                        .restoreUsage(entry.getQuotaType(), entry.getEpochMinute(), entry.getAmount());
+                entries++;
+            }
+
+            logger.info("Restored rate limit state of {} users and {} journal entries in {} ms",
+                    users, entries, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // Starting with empty windows beats not starting at all
+            logger.error("Failed to restore rate limit state, starting empty: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Append buffered usage to the journal table
+     */
+    @Scheduled(fixedDelayString = "${threads.rate-limit.journal-flush-interval:5s}")
+    public synchronized void flushJournal() {
+        List<RateLimitJournal.Usage> drained = journal.drain();
+        if (drained.isEmpty() || !rateLimitConfig.isPersistenceEnabled()) {
+            return;
+        }
+
+        // One row per user, quota and minute
+        Map<String, RateLimitJournalEntry> aggregated = new LinkedHashMap<>();
+        for (RateLimitJournal.Usage usage : drained) {
+            String key = usage.getUserId() + '|' + usage.getType() + '|' + usage.getEpochMinute();
+            RateLimitJournalEntry entry = aggregated.computeIfAbsent(key, k -> new RateLimitJournalEntry(
+                    usage.getUserId(), usage.getType(), usage.getEpochMinute(), 0));
+            entry.setAmount(entry.getAmount() + usage.getAmount());
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> journalRepository.saveAll(aggregated.values()));
+        } catch (Exception e) {
+            logger.error("Failed to flush {} rate limit journal entries: {}", aggregated.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Snapshot every tracked user's window and truncate the journal it covers
+     */
+    @Scheduled(fixedDelayString = "${threads.rate-limit.snapshot-interval:60s}",
+            initialDelayString = "${threads.rate-limit.snapshot-interval:60s}")
+    public synchronized void snapshot() {
+        if (!rateLimitConfig.isPersistenceEnabled()) {
+            return;
+        }
+        flushJournal();
+
+        long start = System.nanoTime();
+        try {
+            int written = transactionTemplate.execute(status -> {
+                Long coveredJournalId = journalRepository.findMaxId();
+
+                Map<String, RateLimitSnapshot> existing = new HashMap<>();
+                for (RateLimitSnapshot snapshot : snapshotRepository.findAll()) {
+                    existing.put(snapshot.getUserId(), snapshot);
+                }
+
+                long now = System.currentTimeMillis();
+                List<RateLimitSnapshot> snapshots = new ArrayList<>();
+                for (UserRateLimitInfo userInfo : rateLimitService.getTrackedUsers()) {
+                    String buckets = encodeBuckets(userInfo, now);
+                    RateLimitSnapshot snapshot = existing.get(userInfo.getUserId());
+                    if (snapshot == null) {
+                        if (buckets.isEmpty()) {
+                            continue; // Nothing worth persisting
+                        }
+                        snapshot = new RateLimitSnapshot(userInfo.getUserId());
+                    }
+                    snapshot.setImpressions(userInfo.getImpressions());
+                    snapshot.setLastApiCall(userInfo.getLastApiCall());
+                    snapshot.setUsageBuckets(buckets);
+                    snapshots.add(snapshot);
+                }
+                snapshotRepository.saveAll(snapshots);
+
+                if (coveredJournalId != null) {
+                    journalRepository.deleteUpTo(coveredJournalId);
+                }
+                return snapshots.size();
+            });
+            logger.debug("Snapshotted rate limit state of {} users in {} ms", written,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Failed to snapshot rate limit state: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Persist the latest state on a graceful shutdown
+     */
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    private String encodeBuckets(UserRateLimitInfo userInfo, long now) {
+        StringBuilder encoded = new StringBuilder();
+        for (QuotaType type : QuotaType.values()) {
+            StringBuilder buckets = new StringBuilder();
+            userInfo.getCounter(type).forEachBucket(now, (epochMinute, count) -> {
+                if (buckets.length() > 0) {
+                    buckets.append(',');
+                }
+                buckets.append(epochMinute).append('=').append(count);
+            });
+            if (buckets.length() > 0) {
+                if (encoded.length() > 0) {
+                    encoded.append(';');
+                }
+                encoded.append(type.name()).append(':').append(buckets);
+            }
+        }
+        return encoded.toString();
+    }
+
+    private void decodeBuckets(UserRateLimitInfo userInfo, String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String section : encoded.split(";")) {
+            int separator = section.indexOf(':');
+            try {
+                QuotaType type = QuotaType.valueOf(section.substring(0, separator));
+                for (String bucket : section.substring(separator + 1).split(",")) {
+                    int equals = bucket.indexOf('=');
+                    userInfo.restoreUsage(type, Long.parseLong(bucket.substring(0, equals)),
+                            Long.parseLong(bucket.substring(equals + 1)));
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Skipping unreadable rate limit snapshot section for user {}: {}",
+                        userInfo.getUserId(), e.getMessage());
+            }
+        }
+    }
+}
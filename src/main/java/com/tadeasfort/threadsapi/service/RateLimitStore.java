@@ -0,0 +1,28 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.UserRateLimitInfo;
+
+/**
+ * Where {@link ThreadsRateLimitService} reserves quota. The in-memory store
+ * (default) keeps the quota in this JVM's window counters; the JDBC store
+ * shares it between instances through the database. Selected with
+ * {@code threads.rate-limit.store=memory|jdbc}.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Reserve up to {@code amount} units of a quota without the user's 24h
+     * usage exceeding {@code limit} (the quota limit, or less for lower quota
+     * classes). All-or-nothing unless {@code partial}. Returns the amount
+     * reserved, 0 if denied; the reservation is recorded in the user's window
+     * counter for the minute of {@code nowMillis}.
+     */
+    long tryReserve(UserRateLimitInfo userInfo, QuotaType type, long nowMillis, long amount, long limit,
+            boolean partial);
+
+    /**
+     * Hand back units reserved in the given epoch minute
+     */
+    void release(UserRateLimitInfo userInfo, QuotaType type, long epochMinute, long amount);
+}
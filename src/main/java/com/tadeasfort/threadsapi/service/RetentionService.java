@@ -0,0 +1,248 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RetentionConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deletes rows past their retention age without holding the database.
+ * <p>
+ * SQLite allows one writer and the pool has a single connection, so a
+ * retention delete must not run as one long transaction. Each table is
+ * cleaned by primary key range: one bounded DELETE per range of
+ * {@code chunk-size} IDs, each in its own short transaction, with a pause
+ * between chunks so queued work gets the connection. Only the ID span holding
+ * expired rows is walked. The public entry points run outside any caller's
+ * transaction, which would otherwise hold the connection for the whole run
+ * and turn the chunks into one long write. Ages are configured per table with
+ * {@code threads.retention.max-age[table]}; which rows a table may lose is
+ * fixed by its policy below.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+
+    private static final List<RetentionPolicy> POLICIES = List.of(
+            new RetentionPolicy("search_results", "search_timestamp", null),
+            // Only finished queue items
+            new RetentionPolicy("interaction_queue", "COALESCE(executed_at, updated_at)",
+                    "status IN ('COMPLETED', 'FAILED', 'SKIPPED', 'CANCELLED')"),
+            // Keep posts that queued interactions still refer to
+            new RetentionPolicy("discovered_posts", "discovered_at",
+                    "NOT EXISTS (SELECT 1 FROM interaction_queue q WHERE q.discovered_post_id = discovered_posts.id "
+                            + "AND q.status IN ('PENDING', 'PROCESSING'))"),
+            // Expired rejections let a post be scored again
+            new RetentionPolicy("rejected_posts", "rejected_at", null),
+            new RetentionPolicy("automation_jobs", "updated_at", "status IN ('COMPLETED', 'FAILED', 'CANCELLED')"),
+            new RetentionPolicy("threads_insights", "date_recorded", null));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RetentionConfig retentionConfig;
+
+    // One table cleanup at a time
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    /**
+     * Apply every configured retention policy
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RetentionReport runRetention() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        List<TableReport> tables = new ArrayList<>();
+        for (RetentionPolicy policy : POLICIES) {
+            Duration maxAge = retentionConfig.getMaxAge().get(policy.table);
+            if (maxAge == null) {
+                continue;
+            }
+            try {
+                tables.add(purge(policy, maxAge));
+            } catch (Exception e) {
+                logger.error("Retention cleanup of {} failed: {}", policy.table, e.getMessage(), e);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+
+        RetentionReport report = new RetentionReport(startedAt, Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                tables);
+        logger.info("Retention cleanup removed {} rows from {} tables in {} ms", report.getRowsRemoved(),
+                tables.size(), report.getDurationMillis());
+        return report;
+    }
+
+    /**
+     * Delete rows of one table older than {@code maxAge} under its policy
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TableReport purge(String table, Duration maxAge) {
+        RetentionPolicy policy = POLICIES.stream()
+                .filter(p -> p.table.equals(table))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No retention policy for table " + table));
+        return purge(policy, maxAge);
+    }
+
+    private TableReport purge(RetentionPolicy policy, Duration maxAge) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+        long start = System.nanoTime();
+        long removed = 0;
+        int chunks = 0;
+
+        runLock.lock();
+        try {
+            // ID span of the expired rows; one read, no write lock
+            Object[] span = (Object[]) entityManager
+                    .createNativeQuery("SELECT MIN(id), MAX(id) FROM " + policy.table + " WHERE " + policy.where())
+                    .setParameter("cutoff", cutoff)
+                    .getSingleResult();
+
+            if (span[0] != null) {
+                long fromId = ((Number) span[0]).longValue();
+                long maxId = ((Number) span[1]).longValue();
+                int chunkSize = Math.max(1, retentionConfig.getChunkSize());
+                String delete = "DELETE FROM " + policy.table + " WHERE id >= :fromId AND id < :toId AND "
+                        + policy.where();
+
+                while (fromId <= maxId && !Thread.currentThread().isInterrupted()) {
+                    long chunkStart = fromId;
+                    long chunkEnd = Math.min(fromId + chunkSize, maxId + 1);
+                    Integer deleted = transactionTemplate.execute(status -> entityManager.createNativeQuery(delete)
+                            .setParameter("fromId", chunkStart)
+                            .setParameter("toId", chunkEnd)
+                            .setParameter("cutoff", cutoff)
+                            .executeUpdate());
+                    removed += deleted != null ? deleted : 0;
+                    chunks++;
+                    fromId = chunkEnd;
+
+                    // Let queued work have the connection between chunks
+                    if (deleted != null && deleted > 0 && fromId <= maxId) {
+                        pause();
+                    }
+                }
+            }
+        } finally {
+            runLock.unlock();
+        }
+
+        TableReport report = new TableReport(policy.table, cutoff, removed, chunks,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        logger.info("Removed {} rows older than {} from {} in {} chunks ({} ms)", removed, cutoff, policy.table,
+                chunks, report.getDurationMillis());
+        return report;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(retentionConfig.getChunkPause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Which rows of a table expire: those whose timestamp expression is before
+     * the cutoff and that match the condition, if any
+     */
+    private static class RetentionPolicy {
+        private final String table;
+        private final String timestamp;
+        private final String condition;
+
+        private RetentionPolicy(String table, String timestamp, String condition) {
+            this.table = table;
+            this.timestamp = timestamp;
+            this.condition = condition;
+        }
+
+        private String where() {
+            return timestamp + " < :cutoff" + (condition != null ? " AND " + condition : "");
+        }
+    }
+
+    public static class RetentionReport {
+        private final LocalDateTime startedAt;
+        private final long durationMillis;
+        private final List<TableReport> tables;
+
+        public RetentionReport(LocalDateTime startedAt, long durationMillis, List<TableReport> tables) {
+            this.startedAt = startedAt;
+            this.durationMillis = durationMillis;
+            this.tables = tables;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public long getRowsRemoved() {
+            return tables.stream().mapToLong(TableReport::getRowsRemoved).sum();
+        }
+
+        public List<TableReport> getTables() {
+            return tables;
+        }
+    }
+
+    public static class TableReport {
+        private final String table;
+        private final LocalDateTime cutoff;
+        private final long rowsRemoved;
+        private final int chunks;
+        private final long durationMillis;
+
+        public TableReport(String table, LocalDateTime cutoff, long rowsRemoved, int chunks, long durationMillis) {
+            this.table = table;
+            this.cutoff = cutoff;
+            this.rowsRemoved = rowsRemoved;
+            this.chunks = chunks;
+            this.durationMillis = durationMillis;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public LocalDateTime getCutoff() {
+            return cutoff;
+        }
+
+        public long getRowsRemoved() {
+            return rowsRemoved;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+}
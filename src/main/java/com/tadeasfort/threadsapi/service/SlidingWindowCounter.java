@@ -0,0 +1,263 @@
+package com.tadeasfort.threadsapi.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free sliding-window counter over a ring of per-minute buckets.
+ * <p>
+ * Each slot packs the minute it belongs to (relative to the counter's base
+ * minute) into the upper 24 bits and the bucket's count into the lower 40
+ * bits, so a bucket is claimed and incremented with a single CAS. A slot whose
+ * minute has left the window is simply overwritten by the next minute mapping
+ * to it, which replaces a periodic reset and removes the burst across a fixed
+ * window boundary.
+ * <p>
+ * Within a minute only the current bucket grows, so the total of the closed
+ * minutes is computed once per minute and cached; checks then cost one slot
+ * read instead of a scan of the whole ring. Shrinking a closed bucket bumps a
+ * version, which invalidates any total computed (or being computed) before it.
+ */
+public class SlidingWindowCounter {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final int COUNT_BITS = 40;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final int windowMinutes;
+    private final long baseMinute;
+    private final AtomicLongArray slots;
+
+    // Bumped after any change to a closed bucket
+    private final AtomicLong version = new AtomicLong();
+
+    // Total of the window's closed minutes and the minute and version it was
+    // computed for; null = not computed
+    private volatile ClosedTotal closedTotal;
+
+    public SlidingWindowCounter(int windowMinutes) {
+        this.windowMinutes = windowMinutes;
+        // Stamps are stored relative to this, 0 meaning an empty slot
+        this.baseMinute = System.currentTimeMillis() / MINUTE_MILLIS - windowMinutes - 1;
+        this.slots = new AtomicLongArray(windowMinutes);
+    }
+
+    /**
+     * Add to the bucket of the minute containing {@code nowMillis}
+     */
+    public void add(long nowMillis, long amount) {
+        addToStamp(stampOf(nowMillis), amount);
+    }
+
+    /**
+     * Add to the bucket of an absolute epoch minute (e.g. restored from a
+     * snapshot), ignoring minutes that are no longer within the window
+     */
+    public void restore(long epochMinute, long amount, long nowMillis) {
+        long stamp = epochMinute - baseMinute;
+        if (stamp > stampOf(nowMillis) - windowMinutes && stamp >= 1) {
+            addToStamp(stamp, amount);
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Visit the non-empty buckets within the window, oldest first, with their
+     * absolute epoch minute
+     */
+    public void forEachBucket(long nowMillis, BucketConsumer consumer) {
+        long stamp = stampOf(nowMillis);
+        for (long minute = stamp - windowMinutes + 1; minute <= stamp; minute++) {
+            long slot = slots.get((int) (minute % windowMinutes));
+            if ((slot >>> COUNT_BITS) == minute && (slot & COUNT_MASK) > 0) {
+                consumer.accept(baseMinute + minute, slot & COUNT_MASK);
+            }
+        }
+    }
+
+    private void addToStamp(long stamp, long amount) {
+        if (amount <= 0) {
+            return;
+        }
+        int index = (int) (stamp % windowMinutes);
+        while (true) {
+            long current = slots.get(index);
+            long currentStamp = current >>> COUNT_BITS;
+            long next;
+            if (currentStamp >= stamp) {
+                // Same minute (or a newer one after a clock step back): accumulate
+                next = (current & ~COUNT_MASK) | Math.min(COUNT_MASK, (current & COUNT_MASK) + amount);
+            } else {
+                // The slot still holds a minute that has left the window
+                next = (stamp << COUNT_BITS) | Math.min(COUNT_MASK, amount);
+            }
+            if (slots.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Atomically add up to {@code amount} to the current minute's bucket
+     * without letting the window total exceed {@code limit}. All-or-nothing
+     * unless {@code partial}. Returns the amount reserved (0 if denied); the
+     * reservation lives in the bucket of epoch minute {@code nowMillis / 60000}
+     * and can be handed back with {@link #release}.
+     * <p>
+     * Older buckets can only shrink while this runs, so only the current bucket
+     * needs the CAS; concurrent reservers re-evaluate against each other's
+     * updates instead of all passing a stale check.
+     */
+    public long tryReserve(long nowMillis, long amount, long limit, boolean partial) {
+        if (amount <= 0) {
+            return 0;
+        }
+        long stamp = stampOf(nowMillis);
+        int index = (int) (stamp % windowMinutes);
+        long others = closedTotal(stamp, index);
+        while (true) {
+            long current = slots.get(index);
+            long currentStamp = current >>> COUNT_BITS;
+            long currentCount = currentStamp >= stamp ? current & COUNT_MASK : 0;
+            long available = limit - others - currentCount;
+            long granted = partial ? Math.min(amount, available) : (available >= amount ? amount : 0);
+            if (granted <= 0) {
+                return 0;
+            }
+            long next = currentStamp >= stamp
+                    ? (current & ~COUNT_MASK) | Math.min(COUNT_MASK, currentCount + granted)
+                    : (stamp << COUNT_BITS) | granted;
+            if (slots.compareAndSet(index, current, next)) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * Hand back a reservation made in the given epoch minute; a no-op once that
+     * bucket has left the window
+     */
+    public void release(long epochMinute, long amount) {
+        long stamp = epochMinute - baseMinute;
+        if (stamp < 1 || amount <= 0) {
+            return;
+        }
+        int index = (int) (stamp % windowMinutes);
+        while (true) {
+            long current = slots.get(index);
+            if ((current >>> COUNT_BITS) != stamp) {
+                return;
+            }
+            long next = (current & ~COUNT_MASK) | Math.max(0, (current & COUNT_MASK) - amount);
+            if (slots.compareAndSet(index, current, next)) {
+                // A closed minute may have shrunk
+                version.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Total of the buckets within the window ending at {@code nowMillis}
+     */
+    public long sum(long nowMillis) {
+        long stamp = stampOf(nowMillis);
+        int index = (int) (stamp % windowMinutes);
+        long current = slots.get(index);
+        long currentCount = (current >>> COUNT_BITS) == stamp ? current & COUNT_MASK : 0;
+        return closedTotal(stamp, index) + currentCount;
+    }
+
+    /**
+     * Total of the minutes before {@code stamp} within the window, rescanned only
+     * when the minute changes or a closed bucket was modified
+     */
+    private long closedTotal(long stamp, int index) {
+        // Read the version before scanning: a change racing with the scan then
+        // leaves the result already stale instead of cached as current
+        long currentVersion = version.get();
+        ClosedTotal cached = closedTotal;
+        if (cached != null && cached.stamp == stamp && cached.version == currentVersion) {
+            return cached.total;
+        }
+        long total = Math.min(COUNT_MASK, sumExcluding(stamp, index));
+        closedTotal = new ClosedTotal(stamp, currentVersion, total);
+        return total;
+    }
+
+    private long sumExcluding(long stamp, int excludedIndex) {
+        long oldest = stamp - windowMinutes;
+        long total = 0;
+        for (int i = 0; i < windowMinutes; i++) {
+            if (i == excludedIndex) {
+                continue;
+            }
+            long slot = slots.get(i);
+            long slotStamp = slot >>> COUNT_BITS;
+            if (slotStamp > oldest && slotStamp <= stamp) {
+                total += slot & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Milliseconds until enough of the oldest buckets leave the window for the
+     * total to drop below {@code limit}; 0 when it already is
+     */
+    public long retryAfterMillis(long nowMillis, long limit) {
+        long stamp = stampOf(nowMillis);
+        long excess = sum(nowMillis) - limit + 1;
+        if (excess <= 0) {
+            return 0;
+        }
+        long released = 0;
+        for (long minute = stamp - windowMinutes + 1; minute <= stamp; minute++) {
+            long slot = slots.get((int) (minute % windowMinutes));
+            if ((slot >>> COUNT_BITS) == minute) {
+                released += slot & COUNT_MASK;
+                if (released >= excess) {
+                    // The bucket leaves the window when minute + windowMinutes begins
+                    long expiresAt = (baseMinute + minute + windowMinutes) * MINUTE_MILLIS;
+                    return Math.max(0, expiresAt - nowMillis);
+                }
+            }
+        }
+        return (long) windowMinutes * MINUTE_MILLIS;
+    }
+
+    /**
+     * Start of the window ending at {@code nowMillis}, in epoch milliseconds
+     */
+    public long windowStartMillis(long nowMillis) {
+        return (baseMinute + stampOf(nowMillis) - windowMinutes + 1) * MINUTE_MILLIS;
+    }
+
+    public int getWindowMinutes() {
+        return windowMinutes;
+    }
+
+    /**
+     * Receives a bucket's epoch minute and count
+     */
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(long epochMinute, long count);
+    }
+
+    private static class ClosedTotal {
+        private final long stamp;
+        private final long version;
+        private final long total;
+
+        private ClosedTotal(long stamp, long version, long total) {
+            this.stamp = stamp;
+            this.version = version;
+            this.total = total;
+        }
+    }
+
+    private long stampOf(long nowMillis) {
+        return Math.max(1, nowMillis / MINUTE_MILLIS - baseMinute);
+    }
+}
@@ -0,0 +1,128 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.entity.KeywordSubscription;
+import com.tadeasfort.threadsapi.entity.KeywordSubscriptionChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Min-heap of keyword subscriptions ordered by the time their next search is
+ * due ({@code lastSearchAt + searchFrequencyHours}, or immediately if never
+ * searched).
+ * <p>
+ * Kept up to date from {@link KeywordSubscriptionChangedEvent}s once the
+ * transaction saving or deleting a subscription has committed, so a rolled
+ * back change never reschedules it. Rescheduling pushes a new heap entry and
+ * leaves the old one behind; entries that no longer match a subscription's
+ * current due time are skipped when they reach the top, and the heap is rebuilt
+ * once they make up most of it.
+ */
+@Component
+public class SubscriptionDueQueue {
+
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>(Comparator.comparingLong(e -> e.dueAt));
+
+    // Current heap entry per subscription ID
+    private final Map<Long, Entry> scheduled = new HashMap<>();
+
+    /**
+     * Apply a subscription change once it has committed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSubscriptionChanged(KeywordSubscriptionChangedEvent event) {
+        if (event.isRemoved()) {
+            remove(event.getSubscription().getId());
+        } else {
+            schedule(event.getSubscription());
+        }
+    }
+
+    /**
+     * Schedule the next search of a subscription from its state; inactive
+     * subscriptions are removed
+     */
+    public void schedule(KeywordSubscription subscription) {
+        if (subscription.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(subscription.getIsActive())) {
+            remove(subscription.getId());
+            return;
+        }
+        scheduleAt(subscription.getId(), dueAt(subscription));
+    }
+
+    /**
+     * Schedule a subscription at the given time (epoch millis), replacing its
+     * previous due time
+     */
+    public synchronized void scheduleAt(Long subscriptionId, long dueAt) {
+        Entry entry = new Entry(subscriptionId, dueAt);
+        scheduled.put(subscriptionId, entry);
+        heap.add(entry);
+        if (heap.size() > 64 && heap.size() > 2 * scheduled.size()) {
+            heap.clear();
+            heap.addAll(scheduled.values());
+        }
+    }
+
+    public synchronized void remove(Long subscriptionId) {
+        scheduled.remove(subscriptionId);
+    }
+
+    public synchronized boolean isScheduled(Long subscriptionId) {
+        return scheduled.containsKey(subscriptionId);
+    }
+
+    /**
+     * Take the IDs of all subscriptions due at {@code nowMillis}. They leave the
+     * queue until rescheduled, which saving them after a search does.
+     */
+    public synchronized List<Long> pollDue(long nowMillis) {
+        List<Long> due = new ArrayList<>();
+        while (!heap.isEmpty() && heap.peek().dueAt <= nowMillis) {
+            Entry entry = heap.poll();
+            if (scheduled.remove(entry.subscriptionId, entry)) {
+                due.add(entry.subscriptionId);
+            }
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * When the next search of a subscription is due (epoch millis)
+     */
+    public static long dueAt(KeywordSubscription subscription) {
+        if (subscription.getLastSearchAt() == null) {
+            return 0; // Never searched before
+        }
+        return subscription.getLastSearchAt()
+                .plusHours(subscription.getSearchFrequencyHours())
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    private static class Entry {
+        private final Long subscriptionId;
+        private final long dueAt;
+
+        private Entry(Long subscriptionId, long dueAt) {
+            this.subscriptionId = subscriptionId;
+            this.dueAt = dueAt;
+        }
+    }
+}
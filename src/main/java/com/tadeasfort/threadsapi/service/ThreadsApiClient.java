@@ -5,14 +5,11 @@ import com.tadeasfort.threadsapi.config.ThreadsAppConfig;
 import com.tadeasfort.threadsapi.dto.CreatePostRequest;
 import com.tadeasfort.threadsapi.dto.ThreadsPostResponse;
 import com.tadeasfort.threadsapi.dto.ThreadsTokenResponse;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Service
@@ -20,12 +17,13 @@ public class ThreadsApiClient {
 
     private final ThreadsApiConfig threadsApiConfig;
     private final ThreadsAppConfig threadsAppConfig;
-    private final RestTemplate restTemplate;
+    private final ThreadsGraphClient graphClient;
 
-    public ThreadsApiClient(ThreadsApiConfig threadsApiConfig, ThreadsAppConfig threadsAppConfig) {
+    public ThreadsApiClient(ThreadsApiConfig threadsApiConfig, ThreadsAppConfig threadsAppConfig,
+            ThreadsGraphClient graphClient) {
         this.threadsApiConfig = threadsApiConfig;
         this.threadsAppConfig = threadsAppConfig;
-        this.restTemplate = new RestTemplate();
+        this.graphClient = graphClient;
     }
 
     /**
@@ -41,41 +39,25 @@ public class ThreadsApiClient {
         params.add("redirect_uri", redirectUri);
         params.add("code", code);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-
-        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(params, headers);
-
-        ResponseEntity<ThreadsTokenResponse> response = restTemplate.postForEntity(
-                url, request, ThreadsTokenResponse.class);
-
-        return response.getBody();
+        return graphClient.postForm(url, params, null, parser -> parser.readValueAs(ThreadsTokenResponse.class));
     }
 
     /**
      * Exchange short-lived token for long-lived token
      */
     public ThreadsTokenResponse exchangeForLongLivedToken(String shortLivedToken) {
-        String url = UriComponentsBuilder.fromUriString(threadsApiConfig.getBaseUrl() + "/access_token")
-                .queryParam("grant_type", "th_exchange_token")
-                .queryParam("client_secret", threadsAppConfig.getSecret())
-                .queryParam("access_token", shortLivedToken)
-                .toUriString();
-
-        ResponseEntity<ThreadsTokenResponse> response = restTemplate.getForEntity(url, ThreadsTokenResponse.class);
-        return response.getBody();
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("grant_type", "th_exchange_token");
+        params.put("client_secret", threadsAppConfig.getSecret());
+
+        return graphClient.get("/access_token", params, shortLivedToken,
+                parser -> parser.readValueAs(ThreadsTokenResponse.class));
     }
 
     /**
      * Create a new Threads post
      */
     public ThreadsPostResponse createPost(String accessToken, CreatePostRequest postRequest) {
-        String url = threadsApiConfig.getBaseUrl() + "/me/threads";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-        headers.setBearerAuth(accessToken);
-
         MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
         params.add("media_type", postRequest.getMediaType());
 
@@ -113,68 +95,41 @@ public class ThreadsApiClient {
             params.add("hide_like_view_counts", postRequest.getHideLikeViewCounts().toString());
         }
 
-        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(params, headers);
-
-        ResponseEntity<ThreadsPostResponse> response = restTemplate.postForEntity(
-                url, request, ThreadsPostResponse.class);
-
-        return response.getBody();
+        return graphClient.postForm("/me/threads", params, accessToken,
+                parser -> parser.readValueAs(ThreadsPostResponse.class));
     }
 
     /**
      * Publish a created post
      */
     public Map<String, Object> publishPost(String accessToken, String creationId) {
-        String url = threadsApiConfig.getBaseUrl() + "/me/threads_publish";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-        headers.setBearerAuth(accessToken);
-
         MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
         params.add("creation_id", creationId);
 
-        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(params, headers);
-
-        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                url, HttpMethod.POST, request, new ParameterizedTypeReference<Map<String, Object>>() {
-                });
-        return response.getBody();
+        return graphClient.postForm("/me/threads_publish", params, accessToken, GraphJsonReader::readMap);
     }
 
     /**
      * Get user profile
      */
     public Map<String, Object> getUserProfile(String accessToken) {
-        String url = UriComponentsBuilder.fromUriString(threadsApiConfig.getBaseUrl() + "/me")
-                .queryParam("fields", "id,username,name,threads_profile_picture_url,threads_biography")
-                .queryParam("access_token", accessToken)
-                .toUriString();
-
-        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                url, HttpMethod.GET, null, new ParameterizedTypeReference<Map<String, Object>>() {
-                });
-        return response.getBody();
+        return graphClient.get("/me",
+                Map.of("fields", "id,username,name,threads_profile_picture_url,threads_biography"),
+                accessToken, GraphJsonReader::readMap);
     }
 
     /**
      * Get user's threads
      */
     public Map<String, Object> getUserThreads(String accessToken, String fields, Integer limit) {
-        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(threadsApiConfig.getBaseUrl() + "/me/threads")
-                .queryParam("access_token", accessToken);
-
+        Map<String, Object> params = new LinkedHashMap<>();
         if (fields != null) {
-            builder.queryParam("fields", fields);
+            params.put("fields", fields);
         }
         if (limit != null) {
-            builder.queryParam("limit", limit);
+            params.put("limit", limit);
         }
 
-        String url = builder.toUriString();
-        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                url, HttpMethod.GET, null, new ParameterizedTypeReference<Map<String, Object>>() {
-                });
-        return response.getBody();
+        return graphClient.get("/me/threads", params, accessToken, GraphJsonReader::readMap);
     }
 }
\ No newline at end of file
@@ -0,0 +1,486 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tadeasfort.threadsapi.config.ThreadsApiConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Single gateway for all Threads Graph API traffic.
+ * <p>
+ * Builds request URIs against the configured base URL and hands the raw
+ * response stream to a {@link ResponseDecoder}, so callers decode straight into
+ * entities (see {@link GraphJsonReader}) instead of buffering the body.
+ */
+@Service
+public class ThreadsGraphClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadsGraphClient.class);
+
+    // Graph API accepts at most 50 operations per batch request
+    public static final int MAX_BATCH_SIZE = 50;
+
+    private final ThreadsApiConfig threadsApiConfig;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final GraphRequestCoalescer coalescer;
+    private final GraphApiResilience resilience;
+
+    public ThreadsGraphClient(ThreadsApiConfig threadsApiConfig, RestTemplate restTemplate,
+            ObjectMapper objectMapper, GraphRequestCoalescer coalescer, GraphApiResilience resilience) {
+        this.threadsApiConfig = threadsApiConfig;
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.coalescer = coalescer;
+        this.resilience = resilience;
+    }
+
+    /**
+     * Decodes a response body from a streaming parser positioned before the first
+     * token
+     */
+    @FunctionalInterface
+    public interface ResponseDecoder<T> {
+        T decode(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * GET a Graph API path, passing the access token as a query parameter
+     */
+    public <T> T get(String path, Map<String, ?> params, String accessToken, ResponseDecoder<T> decoder) {
+        URI uri = buildUri(path, params, accessToken);
+        return resilience.execute(endpointOf(path), accessToken, true, () -> {
+            logger.debug("GET {}", path);
+            return restTemplate.execute(uri, HttpMethod.GET, null, response -> decode(response, decoder));
+        });
+    }
+
+    /**
+     * GET public data (e.g. keyword search), coalescing with identical in-flight
+     * calls of any user. The access token is not part of the coalescing key, so
+     * only use this where the response does not depend on who asks. Only
+     * responses up to coalesce-max-body-bytes are shared; callers of a larger
+     * one make their own request.
+     */
+    public <T> T getPublic(String path, Map<String, ?> params, String accessToken, ResponseDecoder<T> decoder) {
+        return getShared(path, params, accessToken, coalescingKey(path, params, null), decoder);
+    }
+
+    /**
+     * GET user-scoped data, coalescing with identical in-flight calls made with
+     * the same access token
+     */
+    public <T> T getCoalesced(String path, Map<String, ?> params, String accessToken, ResponseDecoder<T> decoder) {
+        return getShared(path, params, accessToken, coalescingKey(path, params, accessToken), decoder);
+    }
+
+    /**
+     * POST a form to a Graph API path, authenticating with a bearer token when one
+     * is given
+     */
+    public <T> T postForm(String path, MultiValueMap<String, String> form, String accessToken,
+            ResponseDecoder<T> decoder) {
+        // Not retried: publishing and token exchange are not idempotent
+        return postForm(path, form, accessToken, decoder, endpointOf(path), false);
+    }
+
+    private <T> T postForm(String path, MultiValueMap<String, String> form, String accessToken,
+            ResponseDecoder<T> decoder, String endpoint, boolean idempotent) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        if (accessToken != null) {
+            headers.setBearerAuth(accessToken);
+        }
+
+        URI uri = buildUri(path, null, null);
+        // Batch requests carry the token in the form
+        String throttleKey = accessToken != null ? accessToken : form.getFirst("access_token");
+        return resilience.execute(endpoint, throttleKey, idempotent, () -> {
+            logger.debug("POST {}", path);
+            return restTemplate.execute(uri, HttpMethod.POST,
+                    restTemplate.httpEntityCallback(new HttpEntity<>(form, headers)),
+                    response -> decode(response, decoder));
+        });
+    }
+
+    /**
+     * DELETE a Graph API object
+     */
+    public void delete(String path, String accessToken) {
+        URI uri = buildUri(path, null, accessToken);
+        resilience.execute(endpointOf(path), accessToken, true, () -> {
+            logger.debug("DELETE {}", path);
+            return restTemplate.execute(uri, HttpMethod.DELETE, null, null);
+        });
+    }
+
+    /**
+     * Execute GET requests through the Graph batch endpoint, up to
+     * {@link #MAX_BATCH_SIZE} per HTTP round trip. Responses are returned in
+     * request order; a failed operation (or a failed batch) yields a failed
+     * response for the affected items only.
+     * <p>
+     * Operations identical to one already in flight with the same access token
+     * (in this or a concurrent batch) are not sent again but share its response.
+     */
+    public <T> List<BatchResponse<T>> batchGet(List<BatchRequest<T>> requests, String accessToken) {
+        List<CompletableFuture<RawResponse>> results = new ArrayList<>(requests.size());
+        List<String> leaderUrls = new ArrayList<>();
+        List<CompletableFuture<RawResponse>> leaderFutures = new ArrayList<>();
+        List<String> leaderKeys = new ArrayList<>();
+
+        for (BatchRequest<T> request : requests) {
+            String key = "batch:" + request.getRelativeUrl() + "#" + accessToken;
+            CompletableFuture<RawResponse> future = new CompletableFuture<>();
+            CompletableFuture<RawResponse> existing = coalescer.claim(endpointOf(request.getRelativeUrl()), key,
+                    future);
+            if (existing != null) {
+                results.add(existing);
+            } else {
+                results.add(future);
+                leaderUrls.add(request.getRelativeUrl());
+                leaderFutures.add(future);
+                leaderKeys.add(key);
+            }
+        }
+
+        try {
+            for (int start = 0; start < leaderUrls.size(); start += MAX_BATCH_SIZE) {
+                int end = Math.min(start + MAX_BATCH_SIZE, leaderUrls.size());
+                List<RawResponse> chunkResults = executeBatch(leaderUrls.subList(start, end), accessToken);
+                for (int i = start; i < end; i++) {
+                    leaderFutures.get(i).complete(chunkResults.get(i - start));
+                }
+            }
+        } finally {
+            // Never leave followers waiting on an operation that was not executed
+            for (int i = 0; i < leaderFutures.size(); i++) {
+                leaderFutures.get(i).complete(RawResponse.failure(0, "Batch operation was not executed"));
+                coalescer.release(leaderKeys.get(i), leaderFutures.get(i));
+            }
+        }
+
+        List<BatchResponse<T>> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            responses.add(decodeBatchItem(GraphRequestCoalescer.await(results.get(i)), requests.get(i)));
+        }
+        return responses;
+    }
+
+    /**
+     * Build a batch relative URL (path and query, without base URL or token)
+     */
+    public String relativeUrl(String path, Map<String, ?> params) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromPath(path.startsWith("/") ? path.substring(1) : path);
+        if (params != null) {
+            params.forEach((name, value) -> builder.queryParam(name, value));
+        }
+        return builder.build().encode().toUriString();
+    }
+
+    /**
+     * Build a request URI; absolute URLs (e.g. the OAuth token endpoint) are used
+     * as-is, everything else is resolved against the configured base URL
+     */
+    public URI buildUri(String path, Map<String, ?> params, String accessToken) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(resolveUrl(path));
+        if (params != null) {
+            params.forEach((name, value) -> builder.queryParam(name, value));
+        }
+        if (accessToken != null) {
+            builder.queryParam("access_token", accessToken);
+        }
+        return builder.build().encode().toUri();
+    }
+
+    private String resolveUrl(String path) {
+        if (path.startsWith("http://") || path.startsWith("https://")) {
+            return path;
+        }
+        return threadsApiConfig.getBaseUrl() + (path.startsWith("/") ? path : "/" + path);
+    }
+
+    private <T> T decode(ClientHttpResponse response, ResponseDecoder<T> decoder) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(response.getBody())) {
+            return decoder.decode(parser);
+        }
+    }
+
+    private <T> T getShared(String path, Map<String, ?> params, String accessToken, String key,
+            ResponseDecoder<T> decoder) {
+        // The raw body is shared so that every caller decodes into its own objects
+        String endpoint = endpointOf(path);
+        LeaderResult<T> own = new LeaderResult<>();
+        byte[] body = coalescer.execute(endpoint, key, () -> resilience.execute(endpoint, accessToken, true, () -> {
+            URI uri = buildUri(path, params, accessToken);
+            logger.debug("GET {}", path);
+            return restTemplate.execute(uri, HttpMethod.GET, null, response -> readShared(response, decoder, own));
+        }));
+
+        if (body == null) {
+            if (own.decoded) {
+                return own.value;
+            }
+            // The leader's response was too large to share; fetch our own
+            logger.debug("GET {} response too large to share, not coalescing", path);
+            return get(path, params, accessToken, decoder);
+        }
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return decoder.decode(parser);
+        } catch (IOException e) {
+            throw new RestClientException("Failed to decode response from " + path, e);
+        }
+    }
+
+    /**
+     * Buffer a response body for sharing with coalesced callers, up to
+     * coalesce-max-body-bytes. A larger body is decoded for the leading caller
+     * straight from the stream and not shared (returns null).
+     */
+    private <T> byte[] readShared(ClientHttpResponse response, ResponseDecoder<T> decoder, LeaderResult<T> own)
+            throws IOException {
+        InputStream body = response.getBody();
+        int limit = threadsApiConfig.getCoalesceMaxBodyBytes();
+        byte[] head = body.readNBytes(limit + 1);
+        if (head.length <= limit) {
+            return head;
+        }
+        try (JsonParser parser = objectMapper.createParser(
+                new SequenceInputStream(new ByteArrayInputStream(head), body))) {
+            own.value = decoder.decode(parser);
+            own.decoded = true;
+        }
+        return null;
+    }
+
+    private String coalescingKey(String path, Map<String, ?> params, String accessToken) {
+        StringBuilder key = new StringBuilder(path);
+        if (params != null) {
+            new TreeMap<>(params).forEach((name, value) -> key.append('&').append(name).append('=').append(value));
+        }
+        if (accessToken != null) {
+            key.append('#').append(accessToken);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Endpoint name used for metrics and circuit breakers: the last path segment
+     * without the query, with object IDs collapsed to "object"
+     */
+    private String endpointOf(String path) {
+        int query = path.indexOf('?');
+        String trimmed = query >= 0 ? path.substring(0, query) : path;
+        String endpoint = trimmed.substring(trimmed.lastIndexOf('/') + 1);
+        return !endpoint.isEmpty() && endpoint.chars().allMatch(Character::isDigit) ? "object" : endpoint;
+    }
+
+    private List<RawResponse> executeBatch(List<String> relativeUrls, String accessToken) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("access_token", accessToken);
+        form.add("include_headers", "false");
+        form.add("batch", writeBatch(relativeUrls));
+
+        try {
+            // Batched operations are all GETs, so the batch request is safe to retry
+            return postForm("/", form, null, parser -> readBatchResponses(parser, relativeUrls.size()),
+                    "batch", true);
+        } catch (RestClientException e) {
+            logger.warn("Batch request of {} operations failed: {}", relativeUrls.size(), e.getMessage());
+            List<RawResponse> failed = new ArrayList<>(relativeUrls.size());
+            for (int i = 0; i < relativeUrls.size(); i++) {
+                failed.add(RawResponse.failure(0, e.getMessage()));
+            }
+            return failed;
+        }
+    }
+
+    private String writeBatch(List<String> relativeUrls) {
+        List<Map<String, String>> operations = new ArrayList<>(relativeUrls.size());
+        for (String relativeUrl : relativeUrls) {
+            operations.add(Map.of("method", "GET", "relative_url", relativeUrl));
+        }
+        try {
+            return objectMapper.writeValueAsString(operations);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize batch request", e);
+        }
+    }
+
+    private List<RawResponse> readBatchResponses(JsonParser parser, int expected) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Unexpected batch response: expected an array");
+        }
+
+        List<RawResponse> responses = new ArrayList<>(expected);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (responses.size() >= expected) {
+                parser.skipChildren();
+                continue;
+            }
+            responses.add(readBatchItem(parser));
+        }
+        while (responses.size() < expected) {
+            responses.add(RawResponse.failure(0, "Missing batch response"));
+        }
+        return responses;
+    }
+
+    private RawResponse readBatchItem(JsonParser parser) throws IOException {
+        // A null entry means the operation did not complete within the batch timeout
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return RawResponse.failure(0, "Batch operation timed out");
+        }
+
+        int code = 0;
+        String body = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "code" -> code = parser.getValueAsInt();
+                case "body" -> body = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (code < 200 || code >= 300 || body == null) {
+            return RawResponse.failure(code, body != null ? readErrorMessage(body) : "Empty batch response");
+        }
+        return new RawResponse(code, body, null);
+    }
+
+    private <T> BatchResponse<T> decodeBatchItem(RawResponse raw, BatchRequest<T> request) {
+        if (raw.error != null) {
+            return BatchResponse.failure(raw.statusCode, raw.error);
+        }
+        // Each sub-response body is itself a JSON document encoded as a string
+        try (JsonParser bodyParser = objectMapper.createParser(raw.body)) {
+            return BatchResponse.success(raw.statusCode, request.getDecoder().decode(bodyParser));
+        } catch (IOException e) {
+            return BatchResponse.failure(raw.statusCode, "Failed to decode batch response: " + e.getMessage());
+        }
+    }
+
+    private String readErrorMessage(String body) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            String message = GraphJsonReader.readErrorMessage(parser);
+            return message != null ? message : body;
+        } catch (IOException e) {
+            return body;
+        }
+    }
+
+    /**
+     * Result the leading caller of a coalesced GET decoded for itself
+     */
+    private static class LeaderResult<T> {
+        private T value;
+        private boolean decoded;
+    }
+
+    /**
+     * Undecoded outcome of a batch operation, shared between coalesced callers
+     */
+    private static class RawResponse {
+        private final int statusCode;
+        private final String body;
+        private final String error;
+
+        private RawResponse(int statusCode, String body, String error) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.error = error;
+        }
+
+        private static RawResponse failure(int statusCode, String error) {
+            return new RawResponse(statusCode, null, error);
+        }
+    }
+
+    /**
+     * A single GET operation within a batch request
+     */
+    public static class BatchRequest<T> {
+        private final String relativeUrl;
+        private final ResponseDecoder<T> decoder;
+
+        public BatchRequest(String relativeUrl, ResponseDecoder<T> decoder) {
+            this.relativeUrl = relativeUrl;
+            this.decoder = decoder;
+        }
+
+        public String getRelativeUrl() {
+            return relativeUrl;
+        }
+
+        public ResponseDecoder<T> getDecoder() {
+            return decoder;
+        }
+    }
+
+    /**
+     * Outcome of a single batch operation
+     */
+    public static class BatchResponse<T> {
+        private final int statusCode;
+        private final T body;
+        private final String error;
+
+        private BatchResponse(int statusCode, T body, String error) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.error = error;
+        }
+
+        public static <T> BatchResponse<T> success(int statusCode, T body) {
+            return new BatchResponse<>(statusCode, body, null);
+        }
+
+        public static <T> BatchResponse<T> failure(int statusCode, String error) {
+            return new BatchResponse<>(statusCode, null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public T getBody() {
+            return body;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -6,21 +6,15 @@ import com.tadeasfort.threadsapi.repository.ThreadsInsightRepository;
 import com.tadeasfort.threadsapi.repository.ThreadsPostRepository;
 import com.tadeasfort.threadsapi.aspect.RateLimitAspect.RateLimit;
 import com.tadeasfort.threadsapi.aspect.RateLimitAspect.RateLimitType;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,12 +26,6 @@ import java.util.stream.Collectors;
 public class ThreadsInsightsService {
 
     private static final Logger logger = LoggerFactory.getLogger(ThreadsInsightsService.class);
-    private static final String THREADS_API_BASE_URL = "https://graph.threads.net/v1.0";
-
-    // Custom formatter for Threads API timestamps (e.g.,
-    // "2025-06-22T13:00:27+0000")
-    private static final DateTimeFormatter THREADS_TIMESTAMP_FORMATTER = DateTimeFormatter
-            .ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
 
     @Autowired
     private ThreadsInsightRepository insightsRepository;
@@ -46,44 +34,37 @@ public class ThreadsInsightsService {
     private ThreadsPostRepository postsRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private ThreadsGraphClient graphClient;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private ThreadsRateLimitService rateLimitService;
 
     /**
      * Fetch and store user insights from Threads API
      * Available metrics: views, likes, replies, quotes, clicks, followers_count
+     * The latest daily views count is fed into the rate limiter as the user's
+     * impressions, which scale the API call limits.
      */
     @RateLimit(type = RateLimitType.API_CALL, userIdParamIndex = 0)
     public List<ThreadsInsight> fetchAndStoreUserInsights(String userId, String accessToken) {
         try {
-            String url = UriComponentsBuilder.fromUriString(THREADS_API_BASE_URL + "/me/threads_insights")
-                    .queryParam("metric", "views,likes,replies,quotes,clicks,followers_count")
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
             logger.info("Fetching user insights for user: {}", userId);
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                JsonNode dataArray = jsonResponse.get("data");
-
-                List<ThreadsInsight> insights = new ArrayList<>();
-                if (dataArray != null && dataArray.isArray()) {
-                    for (JsonNode insightNode : dataArray) {
-                        List<ThreadsInsight> parsedInsights = parseUserInsightFromJson(insightNode, userId);
-                        for (ThreadsInsight insight : parsedInsights) {
-                            ThreadsInsight savedInsight = insightsRepository.save(insight);
-                            insights.add(savedInsight);
-                        }
-                    }
+            List<List<ThreadsInsight>> parsedInsights = graphClient.get("/me/threads_insights",
+                    Map.of("metric", "views,likes,replies,quotes,clicks,followers_count"),
+                    accessToken,
+                    parser -> GraphJsonReader.readData(parser, p -> GraphJsonReader.readUserInsights(p, userId)));
+
+            List<ThreadsInsight> insights = new ArrayList<>();
+            for (List<ThreadsInsight> metricInsights : parsedInsights) {
+                for (ThreadsInsight insight : metricInsights) {
+                    ThreadsInsight savedInsight = insightsRepository.save(insight);
+                    insights.add(savedInsight);
                 }
-
-                logger.info("Fetched and stored {} user insights for user {}", insights.size(), userId);
-                return insights;
             }
+
+            logger.info("Fetched and stored {} user insights for user {}", insights.size(), userId);
+            recordImpressions(userId, insights);
+            return insights;
         } catch (Exception e) {
             logger.error("Error fetching user insights for user {}: {}", userId, e.getMessage(), e);
         }
@@ -97,32 +78,21 @@ public class ThreadsInsightsService {
     @RateLimit(type = RateLimitType.API_CALL, userIdParamIndex = 1)
     public List<ThreadsInsight> fetchAndStoreMediaInsights(String postId, String userId, String accessToken) {
         try {
-            String url = UriComponentsBuilder.fromUriString(THREADS_API_BASE_URL + "/" + postId + "/insights")
-                    .queryParam("metric", "views,likes,replies,reposts,quotes,shares")
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
             logger.info("Fetching media insights for post: {}", postId);
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                JsonNode dataArray = jsonResponse.get("data");
-
-                List<ThreadsInsight> insights = new ArrayList<>();
-                if (dataArray != null && dataArray.isArray()) {
-                    for (JsonNode insightNode : dataArray) {
-                        ThreadsInsight insight = parseMediaInsightFromJson(insightNode, postId, userId);
-                        if (insight != null) {
-                            ThreadsInsight savedInsight = insightsRepository.save(insight);
-                            insights.add(savedInsight);
-                        }
-                    }
-                }
-
-                logger.info("Fetched and stored {} media insights for post {}", insights.size(), postId);
-                return insights;
+            List<ThreadsInsight> parsedInsights = graphClient.getCoalesced("/" + postId + "/insights",
+                    Map.of("metric", "views,likes,replies,reposts,quotes,shares"),
+                    accessToken,
+                    parser -> GraphJsonReader.readData(parser,
+                            p -> GraphJsonReader.readMediaInsight(p, postId, userId)));
+
+            List<ThreadsInsight> insights = new ArrayList<>(parsedInsights.size());
+            for (ThreadsInsight insight : parsedInsights) {
+                ThreadsInsight savedInsight = insightsRepository.save(insight);
+                insights.add(savedInsight);
             }
+
+            logger.info("Fetched and stored {} media insights for post {}", insights.size(), postId);
+            return insights;
         } catch (Exception e) {
             logger.error("Error fetching media insights for post {}: {}", postId, e.getMessage(), e);
         }
@@ -424,93 +394,6 @@ public class ThreadsInsightsService {
         return trends;
     }
 
-    /**
-     * Parse Threads API timestamp format to LocalDateTime
-     */
-    private LocalDateTime parseThreadsTimestamp(String timestamp) {
-        try {
-            OffsetDateTime offsetDateTime = OffsetDateTime.parse(timestamp, THREADS_TIMESTAMP_FORMATTER);
-            return offsetDateTime.toLocalDateTime();
-        } catch (Exception e) {
-            logger.warn("Failed to parse timestamp: {}, using current time", timestamp);
-            return LocalDateTime.now();
-        }
-    }
-
-    /**
-     * Parse user insight from JSON response
-     */
-    private List<ThreadsInsight> parseUserInsightFromJson(JsonNode insightNode, String userId) {
-        List<ThreadsInsight> insights = new ArrayList<>();
-
-        try {
-            String metricName = insightNode.get("name").asText();
-            String period = insightNode.has("period") ? insightNode.get("period").asText() : "lifetime";
-
-            JsonNode valuesArray = insightNode.get("values");
-            if (valuesArray != null && valuesArray.isArray()) {
-                for (JsonNode valueNode : valuesArray) {
-                    ThreadsInsight insight = new ThreadsInsight(userId, ThreadsInsight.InsightType.USER_INSIGHT,
-                            metricName, 0L);
-                    insight.setPeriod(period);
-
-                    if (valueNode.has("value")) {
-                        insight.setMetricValue(valueNode.get("value").asLong());
-                    }
-
-                    if (valueNode.has("end_time")) {
-                        String endTime = valueNode.get("end_time").asText();
-                        insight.setDateRecorded(parseThreadsTimestamp(endTime));
-                    }
-
-                    insights.add(insight);
-                }
-            }
-
-            // Handle demographic breakdowns for followers_count
-            if (insightNode.has("total_value") && insightNode.get("total_value").has("breakdowns")) {
-                JsonNode breakdowns = insightNode.get("total_value").get("breakdowns");
-                ThreadsInsight demographicInsight = new ThreadsInsight(userId, ThreadsInsight.InsightType.USER_INSIGHT,
-                        metricName + "_demographics", 0L);
-                demographicInsight.setBreakdownData(breakdowns.toString());
-                insights.add(demographicInsight);
-            }
-
-        } catch (Exception e) {
-            logger.error("Error parsing user insight from JSON: {}", e.getMessage());
-        }
-
-        return insights;
-    }
-
-    /**
-     * Parse media insight from JSON response
-     */
-    private ThreadsInsight parseMediaInsightFromJson(JsonNode insightNode, String postId, String userId) {
-        try {
-            String metricName = insightNode.get("name").asText();
-            String period = insightNode.has("period") ? insightNode.get("period").asText() : "lifetime";
-
-            ThreadsInsight insight = new ThreadsInsight(userId, ThreadsInsight.InsightType.MEDIA_INSIGHT, metricName,
-                    0L);
-            insight.setPostId(postId);
-            insight.setPeriod(period);
-
-            JsonNode valuesArray = insightNode.get("values");
-            if (valuesArray != null && valuesArray.isArray() && valuesArray.size() > 0) {
-                JsonNode valueNode = valuesArray.get(0);
-                if (valueNode.has("value")) {
-                    insight.setMetricValue(valueNode.get("value").asLong());
-                }
-            }
-
-            return insight;
-        } catch (Exception e) {
-            logger.error("Error parsing media insight from JSON: {}", e.getMessage());
-            return null;
-        }
-    }
-
     // DTOs for enhanced insights dashboard
 
     /**
@@ -818,4 +701,15 @@ public class ThreadsInsightsService {
             return historicalInsights;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Feed the views of the most recent day into the rate limiter
+     */
+    private void recordImpressions(String userId, List<ThreadsInsight> insights) {
+        insights.stream()
+                .filter(insight -> "views".equals(insight.getMetricName()) && "day".equals(insight.getPeriod()))
+                .filter(insight -> insight.getMetricValue() != null && insight.getDateRecorded() != null)
+                .max(Comparator.comparing(ThreadsInsight::getDateRecorded))
+                .ifPresent(latest -> rateLimitService.recordReportedImpressions(userId, latest.getMetricValue()));
+    }
+}
@@ -1,44 +1,42 @@
 package com.tadeasfort.threadsapi.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tadeasfort.threadsapi.entity.DiscoveredPost;
 import com.tadeasfort.threadsapi.entity.InteractionQueue;
 import com.tadeasfort.threadsapi.entity.KeywordSubscription;
-import com.tadeasfort.threadsapi.entity.ThreadsPost;
+import com.tadeasfort.threadsapi.entity.RejectedPost;
 import com.tadeasfort.threadsapi.repository.DiscoveredPostRepository;
+import com.tadeasfort.threadsapi.repository.EngagementSummaryRepository;
 import com.tadeasfort.threadsapi.repository.KeywordSubscriptionRepository;
+import com.tadeasfort.threadsapi.repository.RejectedPostRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Transactional
 public class ThreadsKeywordSearchService {
 
     private static final Logger logger = LoggerFactory.getLogger(ThreadsKeywordSearchService.class);
-    private static final String THREADS_API_BASE_URL = "https://graph.threads.net/v1.0";
 
-    // Rate limiting: 2,200 queries per 24 hours per user
-    private static final int MAX_QUERIES_PER_DAY = 2200;
-    private static final long RATE_LIMIT_WINDOW_MS = 24 * 60 * 60 * 1000; // 24 hours
+    private static final String KEYWORD_SEARCH_FIELDS = "id,text,media_type,permalink,timestamp,username,"
+            + "has_replies,is_quote_post,is_reply";
+    private static final String ENGAGEMENT_METRICS = "views,likes,replies,reposts,quotes";
 
-    // Rate limit tracking per user
-    private final ConcurrentHashMap<String, AtomicInteger> userQueryCounts = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Long> userQueryResetTimes = new ConcurrentHashMap<>();
+    // Engagement score above which discovered posts are queued for interaction
+    // when no subscription threshold applies
+    private static final double DEFAULT_AUTO_QUEUE_THRESHOLD = 100.0;
 
     @Autowired
     private KeywordSubscriptionRepository subscriptionRepository;
@@ -47,14 +45,24 @@ public class ThreadsKeywordSearchService {
     private DiscoveredPostRepository discoveredPostRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private RejectedPostRepository rejectedPostRepository;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private EngagementSummaryRepository engagementSummaryRepository;
+
+    @Autowired
+    private ThreadsGraphClient graphClient;
 
     @Autowired
     private InteractionQueueService queueService;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Keyword search quota (2,200 queries per 24 hours per user)
+    @Autowired
+    private ThreadsRateLimitService rateLimitService;
+
     /**
      * Search for posts using a specific keyword
      * 
@@ -78,97 +86,161 @@ public class ThreadsKeywordSearchService {
      * privacy policies. For true content discovery, focus on the post content and
      * metadata
      * rather than engagement metrics for posts from other users.
+     * <p>
+     * Runs outside a transaction so the Graph API calls do not hold the database
+     * connection; the new posts are stored in a short transaction of their own.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<DiscoveredPost> searchKeyword(String userId, String keyword, String accessToken,
             KeywordSubscription.SearchType searchType) {
+        return searchKeyword(userId, keyword, accessToken, searchType,
+                ThreadsRateLimitService.QuotaClass.INTERACTIVE);
+    }
 
-        // Check rate limits
-        if (!checkRateLimit(userId)) {
-            logger.warn("Rate limit exceeded for user {}", userId);
+    /**
+     * Search a keyword, drawing on the quota share of the given priority class
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<DiscoveredPost> searchKeyword(String userId, String keyword, String accessToken,
+            KeywordSubscription.SearchType searchType, ThreadsRateLimitService.QuotaClass quotaClass) {
+
+        // Reserve a query from the daily quota; refunded if the search fails
+        ThreadsRateLimitService.Permit permit = rateLimitService.tryAcquire(userId,
+                ThreadsRateLimitService.QuotaType.KEYWORD_QUERIES, quotaClass);
+        if (!permit.isGranted()) {
+            logger.warn("Rate limit exceeded for user {}: {}", userId, permit.getReason());
             throw new RuntimeException("Daily keyword search limit exceeded (2,200 queries per 24 hours)");
         }
 
         try {
-            String url = UriComponentsBuilder.fromUriString(THREADS_API_BASE_URL + "/keyword_search")
-                    .queryParam("q", keyword)
-                    .queryParam("search_type", mapSearchTypeToApiValue(searchType))
-                    .queryParam("fields",
-                            "id,text,media_type,permalink,timestamp,username,has_replies,is_quote_post,is_reply")
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
             logger.info("Searching keyword '{}' for user {} with search type {}", keyword, userId, searchType);
 
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                // Increment query count
-                incrementQueryCount(userId);
-
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                JsonNode dataArray = jsonResponse.get("data");
-
-                List<DiscoveredPost> discoveredPosts = new ArrayList<>();
-
-                if (dataArray != null && dataArray.isArray()) {
-                    for (JsonNode postNode : dataArray) {
-                        DiscoveredPost discoveredPost = parseDiscoveredPost(postNode, keyword, userId);
-                        if (discoveredPost != null) {
-                            // Check for duplicates
-                            if (!discoveredPostRepository.existsByPostIdAndUserIdAndKeyword(
-                                    discoveredPost.getPostId(), userId, keyword)) {
-
-                                // Try to fetch engagement metrics for public posts
-                                try {
-                                    fetchEngagementMetrics(discoveredPost, accessToken);
-                                } catch (Exception e) {
-                                    logger.debug("Could not fetch engagement metrics for post {}: {}",
-                                            discoveredPost.getPostId(), e.getMessage());
-                                    // Set default values if metrics can't be fetched
-                                    discoveredPost.setLikesCount(0L);
-                                    discoveredPost.setRepliesCount(0L);
-                                    discoveredPost.setRepostsCount(0L);
-                                    discoveredPost.setQuotesCount(0L);
-                                    discoveredPost.setViewsCount(0L);
-                                }
-
-                                // Calculate engagement score
-                                discoveredPost.calculateEngagementScore();
-
-                                // Save discovered post
-                                discoveredPost = discoveredPostRepository.save(discoveredPost);
-                                discoveredPosts.add(discoveredPost);
-
-                                logger.debug("Discovered new post: {} (score: {})",
-                                        discoveredPost.getPostId(), discoveredPost.getEngagementScore());
-
-                                // Auto-queue high engagement posts
-                                if (discoveredPost.getEngagementScore() > 100.0) {
-                                    try {
-                                        InteractionQueue.InteractionType interactionType = determineInteractionType(
-                                                discoveredPost.getEngagementScore());
-                                        queueService.queueDiscoveredPost(discoveredPost, interactionType);
-                                        logger.debug("Auto-queued post {} for {} interaction",
-                                                discoveredPost.getPostId(), interactionType);
-                                    } catch (Exception e) {
-                                        logger.warn("Failed to auto-queue post {}: {}",
-                                                discoveredPost.getPostId(), e.getMessage());
-                                    }
-                                }
-                            }
-                        }
+            List<DiscoveredPost> candidates = fetchSearchResults(userId, keyword, accessToken, searchType);
+
+            // Count the query
+            permit.commit();
+
+            // Drop posts already discovered for this keyword
+            List<DiscoveredPost> newPosts = new ArrayList<>();
+            for (DiscoveredPost candidate : candidates) {
+                if (!discoveredPostRepository.existsByPostIdAndUserIdAndKeyword(
+                        candidate.getPostId(), userId, keyword)) {
+                    newPosts.add(candidate);
+                }
+            }
+
+            // Try to fetch engagement metrics for public posts in batched requests;
+            // posts the API call budget does not cover are left for a later search
+            List<DiscoveredPost> lookedUp = fetchEngagementMetrics(userId, quotaClass, newPosts, accessToken);
+
+            List<DiscoveredPost> discoveredPosts = transactionTemplate.execute(
+                    status -> storeDiscoveredPosts(lookedUp, DEFAULT_AUTO_QUEUE_THRESHOLD));
+
+            logger.info("Found {} new posts for keyword '{}' (user: {})",
+                    discoveredPosts.size(), keyword, userId);
+            return discoveredPosts;
+
+        } catch (GraphApiException e) {
+            // Surface the classified error so callers can back off on throttling
+            permit.refund();
+            logger.warn("Keyword search '{}' for user {} failed ({}): {}",
+                    keyword, userId, e.getCategory(), e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            permit.refund();
+            logger.error("Error searching keyword '{}' for user {}: {}", keyword, userId, e.getMessage(), e);
+            throw new RuntimeException("Keyword search failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run one keyword search on behalf of several subscriptions to the same
+     * keyword and search type, charged to {@code userId}'s quota, and store the
+     * posts new to each subscriber under that subscriber's own keyword.
+     * Engagement metrics are fetched once per post, within the user's API call
+     * budget. A subscriber only gets the posts scoring at or above the
+     * subscription's engagement threshold, and those above it are auto-queued;
+     * the others are recorded as rejected so later searches skip them. Returns
+     * the new posts per subscription ID. Like {@link #searchKeyword}, only the
+     * writes run in (one short) transaction.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<Long, List<DiscoveredPost>> searchKeywordForSubscriptions(String userId, String accessToken,
+            String keyword, KeywordSubscription.SearchType searchType, ThreadsRateLimitService.QuotaClass quotaClass,
+            List<KeywordSubscription> subscriptions) {
+
+        ThreadsRateLimitService.Permit permit = rateLimitService.tryAcquire(userId,
+                ThreadsRateLimitService.QuotaType.KEYWORD_QUERIES, quotaClass);
+        if (!permit.isGranted()) {
+            logger.warn("Rate limit exceeded for user {}: {}", userId, permit.getReason());
+            throw new RuntimeException("Daily keyword search limit exceeded (2,200 queries per 24 hours)");
+        }
+
+        try {
+            logger.info("Searching keyword '{}' for {} subscriptions (charged to user {}) with search type {}",
+                    keyword, subscriptions.size(), userId, searchType);
+
+            List<DiscoveredPost> candidates = fetchSearchResults(userId, keyword, accessToken, searchType);
+            permit.commit();
+
+            // Posts each subscriber has neither discovered nor rejected yet
+            Map<Long, List<DiscoveredPost>> newBySubscription = new LinkedHashMap<>();
+            Map<String, DiscoveredPost> toEnrich = new LinkedHashMap<>();
+            for (KeywordSubscription subscription : subscriptions) {
+                List<DiscoveredPost> newPosts = new ArrayList<>();
+                for (DiscoveredPost candidate : candidates) {
+                    if (isNewFor(subscription, candidate.getPostId())) {
+                        newPosts.add(candidate);
+                        toEnrich.putIfAbsent(candidate.getPostId(), candidate);
                     }
                 }
+                newBySubscription.put(subscription.getId(), newPosts);
+            }
 
-                logger.info("Found {} new posts for keyword '{}' (user: {})",
-                        discoveredPosts.size(), keyword, userId);
-                return discoveredPosts;
-            } else {
-                logger.error("Failed to search keyword '{}': HTTP {}", keyword, response.getStatusCode());
-                throw new RuntimeException("Failed to search keyword: " + response.getStatusCode());
+            Set<String> lookedUp = new HashSet<>();
+            for (DiscoveredPost post : fetchEngagementMetrics(userId, quotaClass,
+                    new ArrayList<>(toEnrich.values()), accessToken)) {
+                lookedUp.add(post.getPostId());
             }
 
+            Map<Long, List<DiscoveredPost>> discovered = new LinkedHashMap<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                List<RejectedPost> rejected = new ArrayList<>();
+                for (KeywordSubscription subscription : subscriptions) {
+                    Integer minScore = subscription.getEngagementThreshold();
+                    List<DiscoveredPost> copies = new ArrayList<>();
+                    for (DiscoveredPost post : newBySubscription.get(subscription.getId())) {
+                        if (!lookedUp.contains(post.getPostId())) {
+                            continue;
+                        }
+                        DiscoveredPost copy = post.copyFor(subscription.getUserId(), subscription.getKeyword());
+                        copy.calculateEngagementScore();
+                        if (minScore == null || copy.getEngagementScore() >= minScore) {
+                            copies.add(copy);
+                        } else {
+                            rejected.add(new RejectedPost(copy.getPostId(), copy.getUserId(), copy.getKeyword(),
+                                    copy.getEngagementScore()));
+                        }
+                    }
+                    double threshold = subscription.getEngagementThreshold() != null
+                            ? subscription.getEngagementThreshold()
+                            : DEFAULT_AUTO_QUEUE_THRESHOLD;
+                    discovered.put(subscription.getId(), storeDiscoveredPosts(copies, threshold));
+                }
+                rejectedPostRepository.saveAll(rejected);
+            });
+
+            logger.info("Found {} posts for keyword '{}', fanned out to {} subscriptions",
+                    toEnrich.size(), keyword, subscriptions.size());
+            return discovered;
+
+        } catch (GraphApiException e) {
+            permit.refund();
+            logger.warn("Keyword search '{}' for user {} failed ({}): {}",
+                    keyword, userId, e.getCategory(), e.getMessage());
+            throw e;
         } catch (Exception e) {
+            permit.refund();
             logger.error("Error searching keyword '{}' for user {}: {}", keyword, userId, e.getMessage(), e);
             throw new RuntimeException("Keyword search failed: " + e.getMessage(), e);
         }
@@ -177,6 +249,7 @@ public class ThreadsKeywordSearchService {
     /**
      * Process all active keyword subscriptions for a user
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void processUserKeywordSubscriptions(String userId, String accessToken) {
         List<KeywordSubscription> subscriptions = subscriptionRepository
                 .findByUserIdAndIsActiveTrueOrderByCreatedAtDesc(userId);
@@ -191,7 +264,8 @@ public class ThreadsKeywordSearchService {
                             userId,
                             subscription.getKeyword(),
                             accessToken,
-                            subscription.getSearchType());
+                            subscription.getSearchType(),
+                            ThreadsRateLimitService.QuotaClass.AUTOMATION);
 
                     // Update subscription statistics
                     subscription.setLastSearchAt(LocalDateTime.now());
@@ -202,6 +276,13 @@ public class ThreadsKeywordSearchService {
                     logger.info("Processed subscription for keyword '{}': found {} posts",
                             subscription.getKeyword(), discoveredPosts.size());
                 }
+            } catch (GraphApiException e) {
+                if (e.shouldBackOff()) {
+                    logger.warn("Stopping keyword subscriptions for user {}: {}", userId, e.getMessage());
+                    break;
+                }
+                logger.error("Error processing subscription for keyword '{}': {}",
+                        subscription.getKeyword(), e.getMessage());
             } catch (Exception e) {
                 logger.error("Error processing subscription for keyword '{}': {}",
                         subscription.getKeyword(), e.getMessage());
@@ -252,41 +333,76 @@ public class ThreadsKeywordSearchService {
      * Get keyword performance analytics
      */
     public List<Object[]> getKeywordPerformance(String userId) {
-        return discoveredPostRepository.getKeywordPerformanceSummary(userId);
+        return engagementSummaryRepository.getKeywordPerformanceSummary(userId);
     }
 
     /**
      * Check if user has remaining API quota
      */
     public boolean checkRateLimit(String userId) {
-        long currentTime = System.currentTimeMillis();
-
-        // Reset counter if 24 hours have passed
-        Long resetTime = userQueryResetTimes.get(userId);
-        if (resetTime == null || currentTime > resetTime) {
-            userQueryCounts.put(userId, new AtomicInteger(0));
-            userQueryResetTimes.put(userId, currentTime + RATE_LIMIT_WINDOW_MS);
-        }
-
-        AtomicInteger count = userQueryCounts.get(userId);
-        return count == null || count.get() < MAX_QUERIES_PER_DAY;
+        return rateLimitService.checkKeywordQueryLimit(userId);
     }
 
     /**
      * Get remaining API quota for user
      */
     public int getRemainingQuota(String userId) {
-        AtomicInteger count = userQueryCounts.get(userId);
-        if (count == null) {
-            return MAX_QUERIES_PER_DAY;
-        }
-        return Math.max(0, MAX_QUERIES_PER_DAY - count.get());
+        return rateLimitService.getRemainingKeywordQueries(userId);
     }
 
     // Private helper methods
 
-    private void incrementQueryCount(String userId) {
-        userQueryCounts.computeIfAbsent(userId, k -> new AtomicInteger(0)).incrementAndGet();
+    private List<DiscoveredPost> fetchSearchResults(String userId, String keyword, String accessToken,
+            KeywordSubscription.SearchType searchType) {
+        return graphClient.getPublic("/keyword_search",
+                Map.of("q", keyword,
+                        "search_type", mapSearchTypeToApiValue(searchType),
+                        "fields", KEYWORD_SEARCH_FIELDS),
+                accessToken,
+                parser -> GraphJsonReader.readData(parser,
+                        p -> GraphJsonReader.readDiscoveredPost(p, keyword, userId)));
+    }
+
+    /**
+     * Score and save newly discovered posts, queueing those scoring above the
+     * threshold for interaction
+     */
+    private List<DiscoveredPost> storeDiscoveredPosts(List<DiscoveredPost> newPosts, double autoQueueThreshold) {
+        List<DiscoveredPost> discoveredPosts = new ArrayList<>();
+
+        for (DiscoveredPost discoveredPost : newPosts) {
+            // Calculate engagement score
+            discoveredPost.calculateEngagementScore();
+
+            // Save discovered post
+            discoveredPost = discoveredPostRepository.save(discoveredPost);
+            discoveredPosts.add(discoveredPost);
+
+            logger.debug("Discovered new post: {} (score: {})",
+                    discoveredPost.getPostId(), discoveredPost.getEngagementScore());
+
+            // Auto-queue high engagement posts
+            if (discoveredPost.getEngagementScore() > autoQueueThreshold) {
+                try {
+                    InteractionQueue.InteractionType interactionType = determineInteractionType(
+                            discoveredPost.getEngagementScore());
+                    queueService.queueDiscoveredPost(discoveredPost, interactionType);
+                    logger.debug("Auto-queued post {} for {} interaction",
+                            discoveredPost.getPostId(), interactionType);
+                } catch (Exception e) {
+                    logger.warn("Failed to auto-queue post {}: {}",
+                            discoveredPost.getPostId(), e.getMessage());
+                }
+            }
+        }
+        return discoveredPosts;
+    }
+
+    private boolean isNewFor(KeywordSubscription subscription, String postId) {
+        return !discoveredPostRepository.existsByPostIdAndUserIdAndKeyword(postId, subscription.getUserId(),
+                subscription.getKeyword())
+                && !rejectedPostRepository.existsByPostIdAndUserIdAndKeyword(postId, subscription.getUserId(),
+                        subscription.getKeyword());
     }
 
     private boolean isSubscriptionDueForSearch(KeywordSubscription subscription) {
@@ -299,75 +415,6 @@ public class ThreadsKeywordSearchService {
         return LocalDateTime.now().isAfter(nextSearchTime);
     }
 
-    private DiscoveredPost parseDiscoveredPost(JsonNode postNode, String keyword, String userId) {
-        try {
-            String postId = postNode.get("id").asText();
-
-            DiscoveredPost discoveredPost = new DiscoveredPost(postId, keyword, userId);
-
-            if (postNode.has("username")) {
-                discoveredPost.setUsername(postNode.get("username").asText());
-            }
-
-            if (postNode.has("text")) {
-                discoveredPost.setText(postNode.get("text").asText());
-            }
-
-            if (postNode.has("media_type")) {
-                String mediaType = postNode.get("media_type").asText();
-                discoveredPost.setMediaType(parseMediaType(mediaType));
-            }
-
-            if (postNode.has("permalink")) {
-                discoveredPost.setPermalink(postNode.get("permalink").asText());
-            }
-
-            if (postNode.has("timestamp")) {
-                String timestamp = postNode.get("timestamp").asText();
-                discoveredPost.setPostTimestamp(parseThreadsTimestamp(timestamp));
-            }
-
-            if (postNode.has("has_replies")) {
-                discoveredPost.setHasReplies(postNode.get("has_replies").asBoolean());
-            }
-
-            if (postNode.has("is_quote_post")) {
-                discoveredPost.setIsQuotePost(postNode.get("is_quote_post").asBoolean());
-            }
-
-            if (postNode.has("is_reply")) {
-                discoveredPost.setIsReply(postNode.get("is_reply").asBoolean());
-            }
-
-            return discoveredPost;
-
-        } catch (Exception e) {
-            logger.error("Error parsing discovered post: {}", e.getMessage());
-            return null;
-        }
-    }
-
-    private ThreadsPost.MediaType parseMediaType(String mediaType) {
-        return switch (mediaType.toUpperCase()) {
-            case "TEXT" -> ThreadsPost.MediaType.TEXT_POST;
-            case "IMAGE" -> ThreadsPost.MediaType.IMAGE;
-            case "VIDEO" -> ThreadsPost.MediaType.VIDEO;
-            case "CAROUSEL_ALBUM" -> ThreadsPost.MediaType.CAROUSEL_ALBUM;
-            default -> ThreadsPost.MediaType.TEXT_POST;
-        };
-    }
-
-    private LocalDateTime parseThreadsTimestamp(String timestamp) {
-        try {
-            OffsetDateTime offsetDateTime = OffsetDateTime.parse(timestamp,
-                    DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ"));
-            return offsetDateTime.toLocalDateTime();
-        } catch (Exception e) {
-            logger.warn("Failed to parse timestamp '{}', using current time", timestamp);
-            return LocalDateTime.now();
-        }
-    }
-
     private String mapSearchTypeToApiValue(KeywordSubscription.SearchType searchType) {
         return switch (searchType) {
             case TOP -> "TOP";
@@ -386,61 +433,70 @@ public class ThreadsKeywordSearchService {
     }
 
     /**
-     * Fetch engagement metrics for a discovered post
+     * Fetch engagement metrics for discovered posts through the Graph batch
+     * endpoint, reserving one API call per post; posts beyond the reservation
+     * are not looked up, and posts whose lookup fails fall back to default
+     * metrics. Returns the posts that were looked up.
      */
-    private void fetchEngagementMetrics(DiscoveredPost discoveredPost, String accessToken) {
+    private List<DiscoveredPost> fetchEngagementMetrics(String userId, ThreadsRateLimitService.QuotaClass quotaClass,
+            List<DiscoveredPost> candidates, String accessToken) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        ThreadsRateLimitService.Permit permit = rateLimitService.tryAcquireUpTo(userId,
+                ThreadsRateLimitService.QuotaType.API_CALLS, candidates.size(), quotaClass);
+        List<DiscoveredPost> discoveredPosts = candidates.subList(0, permit.getAmount());
+        if (discoveredPosts.size() < candidates.size()) {
+            logger.warn("API call budget for user {} covers engagement metrics of only {} of {} posts; "
+                    + "leaving the rest for a later search", userId, discoveredPosts.size(), candidates.size());
+        }
+        if (discoveredPosts.isEmpty()) {
+            return discoveredPosts;
+        }
+
+        List<ThreadsGraphClient.BatchRequest<DiscoveredPost>> requests = new ArrayList<>(discoveredPosts.size());
+        for (DiscoveredPost discoveredPost : discoveredPosts) {
+            requests.add(new ThreadsGraphClient.BatchRequest<>(
+                    graphClient.relativeUrl("/" + discoveredPost.getPostId() + "/insights",
+                            Map.of("metric", ENGAGEMENT_METRICS)),
+                    parser -> {
+                        GraphJsonReader.readMetricValues(parser,
+                                (metricName, value) -> applyEngagementMetric(discoveredPost, metricName, value));
+                        return discoveredPost;
+                    }));
+        }
+
+        List<ThreadsGraphClient.BatchResponse<DiscoveredPost>> responses;
         try {
-            String url = UriComponentsBuilder
-                    .fromUriString(THREADS_API_BASE_URL + "/" + discoveredPost.getPostId() + "/insights")
-                    .queryParam("metric", "views,likes,replies,reposts,quotes")
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                JsonNode dataArray = jsonResponse.get("data");
-
-                if (dataArray != null && dataArray.isArray()) {
-                    for (JsonNode metricNode : dataArray) {
-                        String metricName = metricNode.get("name").asText();
-                        JsonNode valuesArray = metricNode.get("values");
-
-                        if (valuesArray != null && valuesArray.isArray() && valuesArray.size() > 0) {
-                            long value = valuesArray.get(0).get("value").asLong();
-
-                            switch (metricName.toLowerCase()) {
-                                case "views":
-                                    discoveredPost.setViewsCount(value);
-                                    break;
-                                case "likes":
-                                    discoveredPost.setLikesCount(value);
-                                    break;
-                                case "replies":
-                                    discoveredPost.setRepliesCount(value);
-                                    break;
-                                case "reposts":
-                                    discoveredPost.setRepostsCount(value);
-                                    break;
-                                case "quotes":
-                                    discoveredPost.setQuotesCount(value);
-                                    break;
-                            }
-                        }
-                    }
-                }
-            } else {
-                logger.debug("Could not fetch insights for post {}: HTTP {}",
-                        discoveredPost.getPostId(), response.getStatusCode());
+            responses = graphClient.batchGet(requests, accessToken);
+        } catch (RuntimeException e) {
+            permit.refund();
+            throw e;
+        }
+        permit.commit();
+        for (int i = 0; i < discoveredPosts.size(); i++) {
+            ThreadsGraphClient.BatchResponse<DiscoveredPost> response = responses.get(i);
+            if (!response.isSuccess()) {
+                DiscoveredPost discoveredPost = discoveredPosts.get(i);
+                logger.debug("Error fetching engagement metrics for post {}: {}",
+                        discoveredPost.getPostId(), response.getError());
                 // Set default values
                 setDefaultEngagementMetrics(discoveredPost);
             }
-        } catch (Exception e) {
-            logger.debug("Error fetching engagement metrics for post {}: {}",
-                    discoveredPost.getPostId(), e.getMessage());
-            // Set default values
-            setDefaultEngagementMetrics(discoveredPost);
+        }
+        return discoveredPosts;
+    }
+
+    private void applyEngagementMetric(DiscoveredPost discoveredPost, String metricName, long value) {
+        switch (metricName.toLowerCase()) {
+            case "views" -> discoveredPost.setViewsCount(value);
+            case "likes" -> discoveredPost.setLikesCount(value);
+            case "replies" -> discoveredPost.setRepliesCount(value);
+            case "reposts" -> discoveredPost.setRepostsCount(value);
+            case "quotes" -> discoveredPost.setQuotesCount(value);
+            default -> {
+            }
         }
     }
 
@@ -1,103 +1,274 @@
 package com.tadeasfort.threadsapi.service;
 
+import com.tadeasfort.threadsapi.config.ThreadsApiConfig;
+import com.tadeasfort.threadsapi.entity.SyncCheckpoint;
 import com.tadeasfort.threadsapi.entity.ThreadsPost;
+import com.tadeasfort.threadsapi.repository.SyncCheckpointRepository;
 import com.tadeasfort.threadsapi.repository.ThreadsPostRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
 public class ThreadsPostService {
 
     private static final Logger logger = LoggerFactory.getLogger(ThreadsPostService.class);
-    private static final String THREADS_API_BASE_URL = "https://graph.threads.net/v1.0";
 
-    // Custom formatter for Threads API timestamps (e.g.,
-    // "2025-06-22T13:00:27+0000")
-    private static final DateTimeFormatter THREADS_TIMESTAMP_FORMATTER = DateTimeFormatter
-            .ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+    private static final String POST_FIELDS = "id,media_product_type,media_type,media_url,permalink,owner,username,"
+            + "text,timestamp,shortcode,thumbnail_url,children,is_quote_post,has_replies,is_reply,replied_to";
+    private static final String INSIGHT_METRICS = "views,likes,replies,reposts,quotes";
+
+    // Checkpoint key and page size for the /me/threads sync
+    private static final String POSTS_SYNC_RESOURCE = "me/threads";
+    private static final int SYNC_PAGE_SIZE = 100;
 
     @Autowired
     private ThreadsPostRepository postsRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private ThreadsGraphClient graphClient;
+
+    @Autowired
+    private ThreadsRateLimitService rateLimitService;
+
+    @Autowired
+    private ThreadsApiConfig threadsApiConfig;
+
+    @Autowired
+    private SyncCheckpointRepository checkpointRepository;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private TransactionTemplate transactionTemplate;
 
     /**
-     * Retrieve and store user's posts from Threads API
+     * Retrieve and store user's posts from Threads API.
+     * <p>
+     * Walks every page of /me/threads (see {@link #syncUserPosts}); when an
+     * interrupted sync is resumed only the posts of the remaining pages are
+     * returned.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<ThreadsPost> retrieveAndStoreUserPosts(String userId, String accessToken) {
+        List<ThreadsPost> posts = new ArrayList<>();
         try {
-            String url = UriComponentsBuilder.fromUriString(THREADS_API_BASE_URL + "/me/threads")
-                    .queryParam("fields",
-                            "id,media_product_type,media_type,media_url,permalink,owner,username,text,timestamp,shortcode,thumbnail_url,children,is_quote_post,has_replies,is_reply,replied_to")
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
-            logger.info("Fetching user posts from: {}", url);
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                JsonNode dataArray = jsonResponse.get("data");
-
-                List<ThreadsPost> posts = new ArrayList<>();
-                if (dataArray != null && dataArray.isArray()) {
-                    for (JsonNode postNode : dataArray) {
-                        ThreadsPost post = parsePostFromJson(postNode);
-                        if (post != null) {
-                            // Save or update post
-                            ThreadsPost savedPost = saveOrUpdatePost(post);
-                            posts.add(savedPost);
-                        }
-                    }
+            syncUserPosts(userId, accessToken, posts::addAll);
+        } catch (Exception e) {
+            logger.error("Error retrieving user posts for user {}: {}", userId, e.getMessage(), e);
+        }
+        return posts;
+    }
+
+    /**
+     * Sync all of a user's posts from /me/threads, following the paging cursors.
+     * <p>
+     * Each page is persisted in its own transaction together with a checkpoint of
+     * its after-cursor, so memory stays bounded by the page size and an
+     * interrupted sync resumes from the last persisted page instead of starting
+     * over. Saved posts of every page are handed to the page consumer.
+     *
+     * @return the checkpoint after the last persisted page
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SyncCheckpoint syncUserPosts(String userId, String accessToken, Consumer<List<ThreadsPost>> pageConsumer) {
+        SyncCheckpoint checkpoint = checkpointRepository.findByUserIdAndResource(userId, POSTS_SYNC_RESOURCE)
+                .orElseGet(() -> new SyncCheckpoint(userId, POSTS_SYNC_RESOURCE));
+
+        boolean resuming = checkpoint.isResumable();
+        if (resuming) {
+            logger.info("Resuming post sync for user {} after {} pages ({} posts)",
+                    userId, checkpoint.getPagesSynced(), checkpoint.getItemsSynced());
+        } else {
+            checkpoint.restart();
+            logger.info("Starting post sync for user {}", userId);
+        }
+
+        String cursor = checkpoint.getAfterCursor();
+        int pagesThisRun = 0;
+        while (true) {
+            GraphJsonReader.GraphPage<ThreadsPost> page;
+            try {
+                page = fetchPostsPage(cursor, accessToken);
+            } catch (RestClientException e) {
+                if (resuming && pagesThisRun == 0) {
+                    // The stored cursor may have expired; fall back to a full sync
+                    logger.warn("Could not resume post sync for user {} ({}); starting over", userId, e.getMessage());
+                    resuming = false;
+                    checkpoint.restart();
+                    cursor = null;
+                    continue;
                 }
+                throw e;
+            }
 
-                logger.info("Retrieved and stored {} posts for user {}", posts.size(), userId);
-                return posts;
+            List<ThreadsPost> savedPosts = new ArrayList<>(page.getData().size());
+            SyncCheckpoint current = checkpoint;
+            checkpoint = transactionTemplate.execute(status -> {
+                for (ThreadsPost post : page.getData()) {
+                    // Save or update post
+                    savedPosts.add(saveOrUpdatePost(post));
+                }
+                current.recordPage(page.getAfterCursor(), savedPosts.size());
+                if (!page.hasNext()) {
+                    current.markCompleted();
+                }
+                return checkpointRepository.save(current);
+            });
+            pagesThisRun++;
+            pageConsumer.accept(savedPosts);
+
+            logger.debug("Synced page {} with {} posts for user {}", checkpoint.getPagesSynced(), savedPosts.size(),
+                    userId);
+
+            if (!page.hasNext()) {
+                break;
             }
+            cursor = page.getAfterCursor();
+        }
+
+        logger.info("Retrieved and stored {} posts in {} pages for user {}",
+                checkpoint.getItemsSynced(), checkpoint.getPagesSynced(), userId);
+        return checkpoint;
+    }
+
+    /**
+     * Get the checkpoint of a user's post sync, if one was ever started
+     */
+    public Optional<SyncCheckpoint> getPostsSyncCheckpoint(String userId) {
+        return checkpointRepository.findByUserIdAndResource(userId, POSTS_SYNC_RESOURCE);
+    }
+
+    /**
+     * Sync a user's posts and refresh their insights.
+     * <p>
+     * Insights are refreshed page by page as {@link #syncUserPosts} persists
+     * each page of /me/threads, so memory stays bounded by the page size. Within
+     * a page, insights are fetched in batches of up to 50 posts, with batches
+     * running concurrently on virtual threads. The concurrency cap scales with
+     * the share of the user's API call budget that is still available, and
+     * posts beyond the budget's backfill share are skipped. Each page's
+     * refreshed posts are persisted before the next page is fetched.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public InsightsRefreshResult getPostsWithInsights(String userId, String accessToken) {
+        InsightsRefresh refresh = new InsightsRefresh(userId, accessToken);
+        try {
+            syncUserPosts(userId, accessToken, page -> refreshPageInsights(refresh, page));
         } catch (Exception e) {
             logger.error("Error retrieving user posts for user {}: {}", userId, e.getMessage(), e);
         }
-        return new ArrayList<>();
+        recordRecentViews(userId, refresh.recentViews);
+
+        logger.info("Updated insights for {} of {} posts for user {} ({} failed, {} skipped)",
+                refresh.updatedPosts, refresh.totalPosts, userId, refresh.failedPostIds.size(), refresh.skippedPosts);
+        return new InsightsRefreshResult(refresh.totalPosts, refresh.updatedPosts, refresh.failedPostIds,
+                refresh.skippedPosts);
     }
 
     /**
-     * Get posts with insights data
+     * Refresh the insights of one synced page of posts and persist them
      */
-    public List<ThreadsPost> getPostsWithInsights(String userId, String accessToken) {
-        List<ThreadsPost> posts = retrieveAndStoreUserPosts(userId, accessToken);
+    private void refreshPageInsights(InsightsRefresh refresh, List<ThreadsPost> posts) {
+        String userId = refresh.userId;
+        refresh.totalPosts += posts.size();
+        if (posts.isEmpty()) {
+            return;
+        }
 
-        // Fetch insights for each post
-        for (ThreadsPost post : posts) {
-            try {
-                updatePostInsights(post.getId(), accessToken);
-            } catch (Exception e) {
-                logger.warn("Failed to update insights for post {}: {}", post.getId(), e.getMessage());
+        // Reserve up front so concurrent refreshes can't both spend the same budget;
+        // a bulk refresh is backfill and leaves the reserved shares to other work
+        ThreadsRateLimitService.Permit permit = rateLimitService.tryAcquireUpTo(userId,
+                ThreadsRateLimitService.QuotaType.API_CALLS, posts.size(),
+                ThreadsRateLimitService.QuotaClass.BACKFILL);
+        int remainingCalls = permit.getAmount() + rateLimitService.getRemainingApiCalls(userId);
+        List<ThreadsPost> toRefresh = posts.subList(0, permit.getAmount());
+        int skipped = posts.size() - toRefresh.size();
+        refresh.skippedPosts += skipped;
+        if (skipped > 0) {
+            logger.warn("API call budget for user {} covers only {} of {} posts in this page; skipping insights "
+                    + "for {}", userId, toRefresh.size(), posts.size(), skipped);
+        }
+        if (toRefresh.isEmpty()) {
+            permit.commit();
+            return;
+        }
+
+        List<List<ThreadsPost>> chunks = new ArrayList<>();
+        for (int start = 0; start < toRefresh.size(); start += ThreadsGraphClient.MAX_BATCH_SIZE) {
+            chunks.add(toRefresh.subList(start,
+                    Math.min(start + ThreadsGraphClient.MAX_BATCH_SIZE, toRefresh.size())));
+        }
+
+        int concurrency = Math.max(1, Math.min(chunks.size(), resolveInsightsConcurrency(userId, remainingCalls)));
+        logger.debug("Refreshing insights for {} posts of user {} in {} batches (concurrency {})",
+                toRefresh.size(), userId, chunks.size(), concurrency);
+
+        List<ThreadsPost> updated = new ArrayList<>(toRefresh.size());
+        Semaphore permits = new Semaphore(concurrency);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<ThreadsGraphClient.BatchResponse<ThreadsPost>>>> futures = new ArrayList<>(
+                    chunks.size());
+            for (List<ThreadsPost> chunk : chunks) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return graphClient.batchGet(buildInsightsRequests(chunk), refresh.accessToken);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            // Merge per-post results in submission order
+            for (int i = 0; i < chunks.size(); i++) {
+                List<ThreadsPost> chunk = chunks.get(i);
+                try {
+                    List<ThreadsGraphClient.BatchResponse<ThreadsPost>> responses = futures.get(i).get();
+                    for (int j = 0; j < chunk.size(); j++) {
+                        ThreadsGraphClient.BatchResponse<ThreadsPost> response = responses.get(j);
+                        if (response.isSuccess()) {
+                            updated.add(response.getBody());
+                        } else {
+                            refresh.failedPostIds.add(chunk.get(j).getId());
+                            logger.warn("Failed to update insights for post {}: {}",
+                                    chunk.get(j).getId(), response.getError());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    chunk.forEach(post -> refresh.failedPostIds.add(post.getId()));
+                } catch (ExecutionException e) {
+                    logger.warn("Insights batch for user {} failed: {}", userId, e.getCause().getMessage());
+                    chunk.forEach(post -> refresh.failedPostIds.add(post.getId()));
+                }
             }
         }
 
-        return posts;
+        permit.commit();
+        transactionTemplate.executeWithoutResult(status -> postsRepository.saveAll(updated));
+        refresh.updatedPosts += updated.size();
+        refresh.recentViews += recentViews(updated);
     }
 
     /**
@@ -105,53 +276,19 @@ public class ThreadsPostService {
      */
     public void updatePostInsights(String postId, String accessToken) {
         try {
-            String url = UriComponentsBuilder.fromUriString(THREADS_API_BASE_URL + "/" + postId + "/insights")
-                    .queryParam("metric", "views,likes,replies,reposts,quotes")
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                JsonNode dataArray = jsonResponse.get("data");
-
-                Optional<ThreadsPost> postOpt = postsRepository.findById(postId);
-                if (postOpt.isPresent()) {
-                    ThreadsPost post = postOpt.get();
-
-                    if (dataArray != null && dataArray.isArray()) {
-                        for (JsonNode metricNode : dataArray) {
-                            String metricName = metricNode.get("name").asText();
-                            JsonNode valuesArray = metricNode.get("values");
-
-                            if (valuesArray != null && valuesArray.isArray() && valuesArray.size() > 0) {
-                                long value = valuesArray.get(0).get("value").asLong();
-
-                                switch (metricName) {
-                                    case "views":
-                                        post.setViewsCount(value);
-                                        break;
-                                    case "likes":
-                                        post.setLikesCount(value);
-                                        break;
-                                    case "replies":
-                                        post.setRepliesCount(value);
-                                        break;
-                                    case "reposts":
-                                        post.setRepostsCount(value);
-                                        break;
-                                    case "quotes":
-                                        post.setQuotesCount(value);
-                                        break;
-                                }
-                            }
-                        }
-                    }
+            Optional<ThreadsPost> postOpt = postsRepository.findById(postId);
+            if (postOpt.isPresent()) {
+                ThreadsPost post = postOpt.get();
 
-                    postsRepository.save(post);
-                    logger.info("Updated insights for post {}", postId);
-                }
+                graphClient.getCoalesced("/" + postId + "/insights", Map.of("metric", INSIGHT_METRICS), accessToken,
+                        parser -> {
+                            GraphJsonReader.readMetricValues(parser,
+                                    (metricName, value) -> applyInsightMetric(post, metricName, value));
+                            return null;
+                        });
+
+                postsRepository.save(post);
+                logger.info("Updated insights for post {}", postId);
             }
         } catch (Exception e) {
             logger.error("Error updating insights for post {}: {}", postId, e.getMessage());
@@ -163,11 +300,7 @@ public class ThreadsPostService {
      */
     public boolean deletePost(String postId, String accessToken) {
         try {
-            String url = UriComponentsBuilder.fromUriString(THREADS_API_BASE_URL + "/" + postId)
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
-            restTemplate.delete(url);
+            graphClient.delete("/" + postId, accessToken);
 
             // Mark as deleted in database
             Optional<ThreadsPost> postOpt = postsRepository.findById(postId);
@@ -266,115 +399,142 @@ public class ThreadsPostService {
     }
 
     /**
-     * Parse Threads API timestamp format to LocalDateTime
+     * Fetch one page of /me/threads, starting after the given cursor
      */
-    private LocalDateTime parseThreadsTimestamp(String timestamp) {
-        try {
-            // Parse as OffsetDateTime first, then convert to LocalDateTime in UTC
-            OffsetDateTime offsetDateTime = OffsetDateTime.parse(timestamp, THREADS_TIMESTAMP_FORMATTER);
-            return offsetDateTime.toLocalDateTime();
-        } catch (Exception e) {
-            logger.warn("Failed to parse timestamp '{}', trying alternative format", timestamp);
-            try {
-                // Fallback to ISO format
-                return LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-            } catch (Exception e2) {
-                logger.error("Failed to parse timestamp '{}' with both formatters", timestamp);
-                return LocalDateTime.now(); // Fallback to current time
-            }
+    private GraphJsonReader.GraphPage<ThreadsPost> fetchPostsPage(String afterCursor, String accessToken) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("fields", POST_FIELDS);
+        params.put("limit", SYNC_PAGE_SIZE);
+        if (afterCursor != null) {
+            params.put("after", afterCursor);
         }
+        return graphClient.get("/me/threads", params, accessToken,
+                parser -> GraphJsonReader.readPage(parser, GraphJsonReader::readThreadsPost));
     }
 
     /**
-     * Parse post from JSON response
+     * Build one batched insights lookup per post
      */
-    private ThreadsPost parsePostFromJson(JsonNode postNode) {
-        try {
-            String id = postNode.get("id").asText();
-
-            ThreadsPost post = new ThreadsPost();
-            post.setId(id);
-
-            // Owner information
-            JsonNode ownerNode = postNode.get("owner");
-            if (ownerNode != null) {
-                post.setUserId(ownerNode.get("id").asText());
-            }
-
-            if (postNode.has("username")) {
-                post.setUsername(postNode.get("username").asText());
-            }
-
-            if (postNode.has("text")) {
-                post.setText(postNode.get("text").asText());
-            }
-
-            if (postNode.has("media_type")) {
-                String mediaType = postNode.get("media_type").asText();
-                post.setMediaType(parseMediaType(mediaType));
-            }
+    private List<ThreadsGraphClient.BatchRequest<ThreadsPost>> buildInsightsRequests(List<ThreadsPost> posts) {
+        List<ThreadsGraphClient.BatchRequest<ThreadsPost>> requests = new ArrayList<>(posts.size());
+        for (ThreadsPost post : posts) {
+            requests.add(new ThreadsGraphClient.BatchRequest<>(
+                    graphClient.relativeUrl("/" + post.getId() + "/insights", Map.of("metric", INSIGHT_METRICS)),
+                    parser -> {
+                        GraphJsonReader.readMetricValues(parser,
+                                (metricName, value) -> applyInsightMetric(post, metricName, value));
+                        return post;
+                    }));
+        }
+        return requests;
+    }
 
-            if (postNode.has("media_url")) {
-                post.setMediaUrl(postNode.get("media_url").asText());
-            }
+    /**
+     * Views of posts published within the last 24h are a lower bound of the
+     * user's rolling 24h impressions; raise the rate limiter's count to it
+     */
+    private void recordRecentViews(String userId, long recentViews) {
+        if (recentViews > 0) {
+            rateLimitService.recordMinimumImpressions(userId, recentViews);
+        }
+    }
 
-            if (postNode.has("permalink")) {
-                post.setPermalink(postNode.get("permalink").asText());
+    /**
+     * Sum of the views of refreshed posts published within the last 24h
+     */
+    private long recentViews(List<ThreadsPost> refreshed) {
+        LocalDateTime since = LocalDateTime.now().minusHours(24);
+        long recentViews = 0;
+        for (ThreadsPost post : refreshed) {
+            if (post.getTimestamp() != null && post.getTimestamp().isAfter(since) && post.getViewsCount() != null) {
+                recentViews += post.getViewsCount();
             }
+        }
+        return recentViews;
+    }
 
-            if (postNode.has("shortcode")) {
-                post.setShortcode(postNode.get("shortcode").asText());
-            }
+    /**
+     * Scale the configured concurrency cap by the share of the user's API call
+     * budget still available in the current window
+     */
+    private int resolveInsightsConcurrency(String userId, int remainingCalls) {
+        int maxConcurrency = Math.max(1, threadsApiConfig.getInsightsConcurrency());
+        int maxCalls = rateLimitService.calculatePublishingLimits(userId).getMaxCallsPerDay();
+        if (maxCalls <= 0) {
+            return 1;
+        }
+        long scaled = ((long) maxConcurrency * remainingCalls + maxCalls - 1) / maxCalls;
+        return (int) Math.max(1, Math.min(maxConcurrency, scaled));
+    }
 
-            if (postNode.has("thumbnail_url")) {
-                post.setThumbnailUrl(postNode.get("thumbnail_url").asText());
+    /**
+     * Apply a single insights metric value to a post
+     */
+    private void applyInsightMetric(ThreadsPost post, String metricName, long value) {
+        switch (metricName) {
+            case "views" -> post.setViewsCount(value);
+            case "likes" -> post.setLikesCount(value);
+            case "replies" -> post.setRepliesCount(value);
+            case "reposts" -> post.setRepostsCount(value);
+            case "quotes" -> post.setQuotesCount(value);
+            default -> {
             }
+        }
+    }
 
-            if (postNode.has("timestamp")) {
-                String timestamp = postNode.get("timestamp").asText();
-                post.setTimestamp(parseThreadsTimestamp(timestamp));
-            }
+    /**
+     * Running totals of a bulk insights refresh, updated page by page
+     */
+    private static class InsightsRefresh {
+        private final String userId;
+        private final String accessToken;
+        private final List<String> failedPostIds = new ArrayList<>();
+        private int totalPosts;
+        private int updatedPosts;
+        private int skippedPosts;
+        private long recentViews;
+
+        private InsightsRefresh(String userId, String accessToken) {
+            this.userId = userId;
+            this.accessToken = accessToken;
+        }
+    }
 
-            if (postNode.has("has_replies")) {
-                post.setHasReplies(postNode.get("has_replies").asBoolean());
-            }
+    /**
+     * Outcome of a bulk insights refresh
+     */
+    public static class InsightsRefreshResult {
+        private final int totalPosts;
+        private final int updatedPosts;
+        private final List<String> failedPostIds;
+        private final int skippedPosts;
+
+        public InsightsRefreshResult(int totalPosts, int updatedPosts, List<String> failedPostIds,
+                int skippedPosts) {
+            this.totalPosts = totalPosts;
+            this.updatedPosts = updatedPosts;
+            this.failedPostIds = failedPostIds;
+            this.skippedPosts = skippedPosts;
+        }
 
-            if (postNode.has("is_quote_post")) {
-                post.setIsQuotePost(postNode.get("is_quote_post").asBoolean());
-            }
+        public int getTotalPosts() {
+            return totalPosts;
+        }
 
-            if (postNode.has("is_reply")) {
-                post.setIsReply(postNode.get("is_reply").asBoolean());
-            }
+        public int getUpdatedPosts() {
+            return updatedPosts;
+        }
 
-            // Handle replied_to relationship
-            JsonNode repliedToNode = postNode.get("replied_to");
-            if (repliedToNode != null) {
-                post.setRepliedToId(repliedToNode.get("id").asText());
-            }
+        public List<String> getFailedPostIds() {
+            return failedPostIds;
+        }
 
-            return post;
-        } catch (Exception e) {
-            logger.error("Error parsing post from JSON: {}", e.getMessage());
-            return null;
+        public int getSkippedPosts() {
+            return skippedPosts;
         }
-    }
 
-    /**
-     * Parse media type from string
-     */
-    private ThreadsPost.MediaType parseMediaType(String mediaType) {
-        switch (mediaType.toUpperCase()) {
-            case "TEXT_POST":
-                return ThreadsPost.MediaType.TEXT_POST;
-            case "IMAGE":
-                return ThreadsPost.MediaType.IMAGE;
-            case "VIDEO":
-                return ThreadsPost.MediaType.VIDEO;
-            case "CAROUSEL_ALBUM":
-                return ThreadsPost.MediaType.CAROUSEL_ALBUM;
-            default:
-                return ThreadsPost.MediaType.TEXT_POST;
+        public boolean isComplete() {
+            return failedPostIds.isEmpty() && skippedPosts == 0;
         }
     }
 
@@ -1,14 +1,18 @@
 package com.tadeasfort.threadsapi.service;
 
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Locale;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ThreadsRateLimitService {
@@ -23,50 +27,133 @@ public class ThreadsRateLimitService {
     private static final int CALLS_PER_IMPRESSION = 4800;
     private static final int POSTS_PER_24H = 250;
     private static final int REPLIES_PER_24H = 1000;
+    static final int KEYWORD_QUERIES_PER_24H = 2200;
     private static final long CPU_TIME_PER_IMPRESSION = 720000;
     private static final long TOTAL_TIME_PER_IMPRESSION = 2880000;
 
-    // Sliding window for rate limiting (24 hours)
-    private static final long RATE_LIMIT_WINDOW_HOURS = 24;
+    // Sliding window for rate limiting (24 hours of per-minute buckets)
+    static final long RATE_LIMIT_WINDOW_HOURS = 24;
+    private static final int RATE_LIMIT_WINDOW_MINUTES = (int) (RATE_LIMIT_WINDOW_HOURS * 60);
+
+    // Usage reported by Meta's X-App-Usage / X-Business-Use-Case-Usage headers:
+    // throttle before Meta does, and ignore reports older than their rolling
+    // window
+    private static final int PROACTIVE_THROTTLE_PERCENT = 95;
+    private static final long REPORTED_USAGE_TTL_MS = 10 * 60 * 1000;
+    private static final long USAGE_BACKOFF_SECONDS = 5 * 60;
+
+    // App-wide usage percentages from X-App-Usage
+    private volatile int appCallPercent;
+    private volatile int appCpuPercent;
+    private volatile int appTimePercent;
+    private volatile long appUsageReportedAt;
+
+    @Autowired
+    private RateLimitJournal journal;
+
+    @Autowired
+    private RateLimitMetrics metrics;
+
+    @Autowired
+    private RateLimitStore store;
 
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    /**
+     * Quotas tracked per user
+     */
+    public enum QuotaType {
+        API_CALLS,
+        POSTS,
+        REPLIES,
+        KEYWORD_QUERIES,
+        CPU_TIME,
+        TOTAL_TIME
+    }
+
+    /**
+     * Priority classes sharing a user's quotas. A class may only fill each
+     * window up to its ceiling: the top share of every quota stays reserved for
+     * the classes above it, while anything below the ceiling that the others
+     * leave unused can be borrowed.
+     */
+    public enum QuotaClass {
+        INTERACTIVE, // User-facing requests; may use the whole quota
+        AUTOMATION, // Scheduled keyword searches and queue processing
+        BACKFILL // Bulk refreshes that can simply do less
+    }
+
+    /**
+     * Per-user usage over a sliding 24h window. Every counter is a ring of
+     * per-minute buckets, so usage ages out minute by minute instead of being
+     * reset all at once.
+     */
     public static class UserRateLimitInfo {
         private final String userId;
-        private final AtomicInteger callsInWindow = new AtomicInteger(0);
-        private final AtomicInteger postsInWindow = new AtomicInteger(0);
-        private final AtomicInteger repliesInWindow = new AtomicInteger(0);
-        private final AtomicLong cpuTimeUsed = new AtomicLong(0);
-        private final AtomicLong totalTimeUsed = new AtomicLong(0);
-        private volatile LocalDateTime windowStart = LocalDateTime.now();
+        private final SlidingWindowCounter calls = new SlidingWindowCounter(RATE_LIMIT_WINDOW_MINUTES);
+        private final SlidingWindowCounter posts = new SlidingWindowCounter(RATE_LIMIT_WINDOW_MINUTES);
+        private final SlidingWindowCounter replies = new SlidingWindowCounter(RATE_LIMIT_WINDOW_MINUTES);
+        private final SlidingWindowCounter cpuTime = new SlidingWindowCounter(RATE_LIMIT_WINDOW_MINUTES);
+        private final SlidingWindowCounter totalTime = new SlidingWindowCounter(RATE_LIMIT_WINDOW_MINUTES);
+        private final SlidingWindowCounter keywordQueries = new SlidingWindowCounter(RATE_LIMIT_WINDOW_MINUTES);
+        private final RateLimitJournal journal;
+        private final RateLimitMetrics metrics;
         private volatile int impressions = MIN_IMPRESSIONS; // Default to minimum
-        private volatile LocalDateTime lastApiCall = LocalDateTime.now();
+        private volatile long lastApiCallMillis = System.currentTimeMillis();
+
+        // Usage percentages from X-Business-Use-Case-Usage
+        private volatile int reportedCallPercent;
+        private volatile int reportedCpuPercent;
+        private volatile int reportedTimePercent;
+        private volatile long usageReportedAt;
+        private volatile long regainAccessAt;
+
+        // Last "allowed" check result, reused while the remaining counts match
+        private volatile RateLimitStatus allowedStatus;
 
         public UserRateLimitInfo(String userId) {
+            this(userId, null, null);
+        }
+
+        UserRateLimitInfo(String userId, RateLimitJournal journal, RateLimitMetrics metrics) {
             this.userId = userId;
+            this.journal = journal;
+            this.metrics = metrics;
         }
 
         // Getters
+        public String getUserId() {
+            return userId;
+        }
+
         public int getCallsInWindow() {
-            return callsInWindow.get();
+            return (int) calls.sum(System.currentTimeMillis());
         }
 
         public int getPostsInWindow() {
-            return postsInWindow.get();
+            return (int) posts.sum(System.currentTimeMillis());
         }
 
         public int getRepliesInWindow() {
-            return repliesInWindow.get();
+            return (int) replies.sum(System.currentTimeMillis());
         }
 
         public long getCpuTimeUsed() {
-            return cpuTimeUsed.get();
+            return cpuTime.sum(System.currentTimeMillis());
         }
 
         public long getTotalTimeUsed() {
-            return totalTimeUsed.get();
+            return totalTime.sum(System.currentTimeMillis());
+        }
+
+        public int getKeywordQueriesInWindow() {
+            return (int) keywordQueries.sum(System.currentTimeMillis());
         }
 
         public LocalDateTime getWindowStart() {
-            return windowStart;
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(calls.windowStartMillis(System.currentTimeMillis())),
+                    ZoneId.systemDefault());
         }
 
         public int getImpressions() {
@@ -74,12 +161,46 @@ public class ThreadsRateLimitService {
         }
 
         public LocalDateTime getLastApiCall() {
-            return lastApiCall;
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(lastApiCallMillis), ZoneId.systemDefault());
+        }
+
+        public long getLastApiCallMillis() {
+            return lastApiCallMillis;
+        }
+
+        public int getReportedCallPercent() {
+            return isUsageReportFresh() ? reportedCallPercent : 0;
+        }
+
+        public int getReportedCpuPercent() {
+            return isUsageReportFresh() ? reportedCpuPercent : 0;
+        }
+
+        public int getReportedTimePercent() {
+            return isUsageReportFresh() ? reportedTimePercent : 0;
+        }
+
+        /**
+         * Highest of the reported call, CPU time and total time usage percentages
+         */
+        public int getReportedUsagePercent() {
+            return Math.max(getReportedCallPercent(), Math.max(getReportedCpuPercent(), getReportedTimePercent()));
+        }
+
+        /**
+         * Seconds until Meta estimates access is regained, 0 if not throttled
+         */
+        public long getRegainAccessInSeconds() {
+            return Math.max(0, (regainAccessAt - System.currentTimeMillis()) / 1000);
+        }
+
+        private boolean isUsageReportFresh() {
+            return System.currentTimeMillis() - usageReportedAt < REPORTED_USAGE_TTL_MS;
         }
 
         // Calculated limits based on impressions
         public int getMaxCallsPerWindow() {
-            return Math.max(MIN_IMPRESSIONS, impressions) * CALLS_PER_IMPRESSION;
+            return maxCallsFor(impressions);
         }
 
         public long getMaxCpuTime() {
@@ -90,46 +211,161 @@ public class ThreadsRateLimitService {
             return Math.max(MIN_IMPRESSIONS, impressions) * TOTAL_TIME_PER_IMPRESSION;
         }
 
-        public synchronized void resetWindowIfNeeded() {
-            LocalDateTime now = LocalDateTime.now();
-            if (ChronoUnit.HOURS.between(windowStart, now) >= RATE_LIMIT_WINDOW_HOURS) {
-                windowStart = now;
-                callsInWindow.set(0);
-                postsInWindow.set(0);
-                repliesInWindow.set(0);
-                cpuTimeUsed.set(0);
-                totalTimeUsed.set(0);
-                logger.info("Rate limit window reset for user: {}", userId);
-            }
+        // Milliseconds until the oldest buckets free enough room for one more unit
+        public long getCallsRetryAfterMillis() {
+            return calls.retryAfterMillis(System.currentTimeMillis(), getMaxCallsPerWindow());
+        }
+
+        public long getPostsRetryAfterMillis() {
+            return posts.retryAfterMillis(System.currentTimeMillis(), POSTS_PER_24H);
+        }
+
+        public long getRepliesRetryAfterMillis() {
+            return replies.retryAfterMillis(System.currentTimeMillis(), REPLIES_PER_24H);
+        }
+
+        public long getKeywordQueriesRetryAfterMillis() {
+            return keywordQueries.retryAfterMillis(System.currentTimeMillis(), KEYWORD_QUERIES_PER_24H);
         }
 
         public void recordApiCall() {
-            resetWindowIfNeeded();
-            callsInWindow.incrementAndGet();
-            lastApiCall = LocalDateTime.now();
+            recordApiCalls(1);
+        }
+
+        public void recordApiCalls(int count) {
+            long now = System.currentTimeMillis();
+            add(QuotaType.API_CALLS, now, count);
+            lastApiCallMillis = now;
         }
 
         public void recordPost() {
-            resetWindowIfNeeded();
-            postsInWindow.incrementAndGet();
+            add(QuotaType.POSTS, System.currentTimeMillis(), 1);
         }
 
         public void recordReply() {
-            resetWindowIfNeeded();
-            repliesInWindow.incrementAndGet();
+            add(QuotaType.REPLIES, System.currentTimeMillis(), 1);
+        }
+
+        public void recordKeywordQuery() {
+            add(QuotaType.KEYWORD_QUERIES, System.currentTimeMillis(), 1);
         }
 
-        public void recordCpuTime(long cpuTime) {
-            cpuTimeUsed.addAndGet(cpuTime);
+        public void recordCpuTime(long amount) {
+            add(QuotaType.CPU_TIME, System.currentTimeMillis(), amount);
         }
 
-        public void recordTotalTime(long totalTime) {
-            totalTimeUsed.addAndGet(totalTime);
+        public void recordTotalTime(long amount) {
+            add(QuotaType.TOTAL_TIME, System.currentTimeMillis(), amount);
+        }
+
+        /**
+         * Window counter of a quota
+         */
+        public SlidingWindowCounter getCounter(QuotaType type) {
+            return switch (type) {
+                case API_CALLS -> calls;
+                case POSTS -> posts;
+                case REPLIES -> replies;
+                case KEYWORD_QUERIES -> keywordQueries;
+                case CPU_TIME -> cpuTime;
+                case TOTAL_TIME -> totalTime;
+            };
+        }
+
+        /**
+         * Restore usage loaded from a snapshot or the journal, without journaling
+         * it again
+         */
+        public void restoreUsage(QuotaType type, long epochMinute, long amount) {
+            getCounter(type).restore(epochMinute, amount, System.currentTimeMillis());
+        }
+
+        public void restoreLastApiCall(LocalDateTime lastApiCall) {
+            if (lastApiCall != null) {
+                long millis = lastApiCall.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                lastApiCallMillis = Math.max(lastApiCallMillis, millis);
+            }
+        }
+
+        /**
+         * 24h limit of a quota for this user
+         */
+        public long getLimit(QuotaType type) {
+            return switch (type) {
+                case API_CALLS -> getMaxCallsPerWindow();
+                case POSTS -> POSTS_PER_24H;
+                case REPLIES -> REPLIES_PER_24H;
+                case KEYWORD_QUERIES -> KEYWORD_QUERIES_PER_24H;
+                case CPU_TIME -> getMaxCpuTime();
+                case TOTAL_TIME -> getMaxTotalTime();
+            };
+        }
+
+        /**
+         * Journal usage that was already reserved in the window (a committed
+         * permit)
+         */
+        void commitUsage(QuotaType type, long epochMinute, long amount) {
+            if (type == QuotaType.API_CALLS) {
+                lastApiCallMillis = System.currentTimeMillis();
+            }
+            if (amount > 0) {
+                if (journal != null) {
+                    journal.append(userId, type, epochMinute * 60_000L, amount);
+                }
+                if (metrics != null) {
+                    metrics.recordUsage(userId, type, amount);
+                }
+            }
+        }
+
+        /**
+         * Units of a quota left in the window ending at {@code now}
+         */
+        int getRemaining(QuotaType type, long now) {
+            return (int) Math.max(0, getLimit(type) - getCounter(type).sum(now));
+        }
+
+        private void add(QuotaType type, long now, long amount) {
+            if (amount <= 0) {
+                return;
+            }
+            getCounter(type).add(now, amount);
+            if (journal != null) {
+                journal.append(userId, type, now, amount);
+            }
+            if (metrics != null) {
+                metrics.recordUsage(userId, type, amount);
+            }
+        }
+
+        /**
+         * Apply usage percentages reported by Meta; the CPU and total time windows
+         * are raised to the reported share of this user's limits
+         */
+        public void applyReportedUsage(int callPercent, int cpuPercent, int timePercent, int regainMinutes) {
+            long now = System.currentTimeMillis();
+            reportedCallPercent = callPercent;
+            reportedCpuPercent = cpuPercent;
+            reportedTimePercent = timePercent;
+            usageReportedAt = now;
+            regainAccessAt = regainMinutes > 0 ? now + regainMinutes * 60_000L : 0;
+            add(QuotaType.CPU_TIME, now, getMaxCpuTime() * cpuPercent / 100 - cpuTime.sum(now));
+            add(QuotaType.TOTAL_TIME, now, getMaxTotalTime() * timePercent / 100 - totalTime.sum(now));
         }
 
         public void updateImpressions(int newImpressions) {
             this.impressions = Math.max(MIN_IMPRESSIONS, newImpressions);
         }
+
+        /**
+         * Raise impressions to a lower bound, keeping a higher known count
+         */
+        public void raiseImpressions(int lowerBound) {
+            if (lowerBound > impressions) {
+                this.impressions = lowerBound;
+            }
+        }
     }
 
     public static class RateLimitStatus {
@@ -175,6 +411,90 @@ public class ThreadsRateLimitService {
         }
     }
 
+    /**
+     * A reservation of quota taken by {@link #tryAcquire}. The reserved units
+     * count against the window immediately; {@link #commit()} makes them final
+     * once the call succeeded and {@link #refund()} hands them back if it
+     * failed. Both are idempotent and only the first of them takes effect.
+     */
+    public static class Permit {
+        private static final int PENDING = 0;
+        private static final int COMMITTED = 1;
+        private static final int REFUNDED = 2;
+
+        private final UserRateLimitInfo owner;
+        private final RateLimitStore store;
+        private final QuotaType type;
+        private final long epochMinute;
+        private final long amount;
+        private final boolean chargesApiCall; // Posts and replies also count as API calls
+        private final String reason;
+        private final long retryAfterSeconds;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Permit(UserRateLimitInfo owner, RateLimitStore store, QuotaType type, long epochMinute,
+                long amount, boolean chargesApiCall) {
+            this.owner = owner;
+            this.store = store;
+            this.type = type;
+            this.epochMinute = epochMinute;
+            this.amount = amount;
+            this.chargesApiCall = chargesApiCall;
+            this.reason = "OK";
+            this.retryAfterSeconds = 0;
+        }
+
+        private Permit(QuotaType type, String reason, long retryAfterSeconds) {
+            this.owner = null;
+            this.store = null;
+            this.type = type;
+            this.epochMinute = 0;
+            this.amount = 0;
+            this.chargesApiCall = false;
+            this.reason = reason;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.state.set(REFUNDED);
+        }
+
+        public boolean isGranted() {
+            return amount > 0;
+        }
+
+        public QuotaType getType() {
+            return type;
+        }
+
+        public int getAmount() {
+            return (int) amount;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void commit() {
+            if (state.compareAndSet(PENDING, COMMITTED)) {
+                owner.commitUsage(type, epochMinute, amount);
+                if (chargesApiCall) {
+                    owner.commitUsage(QuotaType.API_CALLS, epochMinute, amount);
+                }
+            }
+        }
+
+        public void refund() {
+            if (state.compareAndSet(PENDING, REFUNDED)) {
+                store.release(owner, type, epochMinute, amount);
+                if (chargesApiCall) {
+                    store.release(owner, QuotaType.API_CALLS, epochMinute, amount);
+                }
+            }
+        }
+    }
+
     public static class PublishingLimits {
         private final int maxCallsPerDay;
         private final long maxCpuTime;
@@ -222,58 +542,66 @@ public class ThreadsRateLimitService {
      * Check if an API call is allowed for the user
      */
     public RateLimitStatus checkApiCallLimit(String userId) {
-        UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
-        userInfo.resetWindowIfNeeded();
-
-        int currentCalls = userInfo.getCallsInWindow();
-        int maxCalls = userInfo.getMaxCallsPerWindow();
-
-        if (currentCalls >= maxCalls) {
-            long retryAfter = calculateRetryAfterSeconds(userInfo.getWindowStart());
-            return new RateLimitStatus(false, "API call limit exceeded", retryAfter,
-                    0, getRemainingPosts(userId), getRemainingReplies(userId));
-        }
-
-        return new RateLimitStatus(true, "OK", 0,
-                maxCalls - currentCalls, getRemainingPosts(userId), getRemainingReplies(userId));
+        return checkLimit(getUserRateLimitInfo(userId), QuotaType.API_CALLS);
     }
 
     /**
      * Check if a post creation is allowed for the user
      */
     public RateLimitStatus checkPostLimit(String userId) {
-        UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
-        userInfo.resetWindowIfNeeded();
-
-        int currentPosts = userInfo.getPostsInWindow();
-
-        if (currentPosts >= POSTS_PER_24H) {
-            long retryAfter = calculateRetryAfterSeconds(userInfo.getWindowStart());
-            return new RateLimitStatus(false, "Post limit exceeded (250 posts per 24h)", retryAfter,
-                    getRemainingCalls(userId), 0, getRemainingReplies(userId));
-        }
-
-        return new RateLimitStatus(true, "OK", 0,
-                getRemainingCalls(userId), POSTS_PER_24H - currentPosts, getRemainingReplies(userId));
+        return checkLimit(getUserRateLimitInfo(userId), QuotaType.POSTS);
     }
 
     /**
      * Check if a reply creation is allowed for the user
      */
     public RateLimitStatus checkReplyLimit(String userId) {
-        UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
-        userInfo.resetWindowIfNeeded();
+        return checkLimit(getUserRateLimitInfo(userId), QuotaType.REPLIES);
+    }
 
-        int currentReplies = userInfo.getRepliesInWindow();
+    /**
+     * Reserve one unit of a quota. The check and the reservation are a single
+     * atomic step, so concurrent callers cannot all pass the check before any
+     * of them records; commit the permit once the call succeeded, refund it if
+     * it failed.
+     */
+    public Permit tryAcquire(String userId, QuotaType type) {
+        return tryAcquire(userId, type, QuotaClass.INTERACTIVE);
+    }
 
-        if (currentReplies >= REPLIES_PER_24H) {
-            long retryAfter = calculateRetryAfterSeconds(userInfo.getWindowStart());
-            return new RateLimitStatus(false, "Reply limit exceeded (1000 replies per 24h)", retryAfter,
-                    getRemainingCalls(userId), getRemainingPosts(userId), 0);
-        }
+    /**
+     * Reserve one unit of a quota for the given priority class
+     */
+    public Permit tryAcquire(String userId, QuotaType type, QuotaClass quotaClass) {
+        return reserve(userId, type, quotaClass, 1, false);
+    }
 
-        return new RateLimitStatus(true, "OK", 0,
-                getRemainingCalls(userId), getRemainingPosts(userId), REPLIES_PER_24H - currentReplies);
+    /**
+     * Reserve as many units as are available, up to {@code requested} (e.g. the
+     * operations of a batch); check {@link Permit#getAmount()} for the grant
+     */
+    public Permit tryAcquireUpTo(String userId, QuotaType type, int requested) {
+        return tryAcquireUpTo(userId, type, requested, QuotaClass.INTERACTIVE);
+    }
+
+    /**
+     * Reserve up to {@code requested} units for the given priority class
+     */
+    public Permit tryAcquireUpTo(String userId, QuotaType type, int requested, QuotaClass quotaClass) {
+        return reserve(userId, type, quotaClass, requested, true);
+    }
+
+    /**
+     * The part of a quota limit a priority class may fill
+     */
+    public long getClassLimit(long limit, QuotaClass quotaClass) {
+        int reservedPercent = switch (quotaClass) {
+            case INTERACTIVE -> 0;
+            case AUTOMATION -> rateLimitConfig.getInteractiveReservePercent();
+            case BACKFILL -> rateLimitConfig.getInteractiveReservePercent()
+                    + rateLimitConfig.getAutomationReservePercent();
+        };
+        return limit * Math.max(0, 100 - reservedPercent) / 100;
     }
 
     /**
@@ -283,6 +611,20 @@ public class ThreadsRateLimitService {
         getUserRateLimitInfo(userId).recordApiCall();
     }
 
+    /**
+     * Record several API calls at once (e.g. the operations of a batch request)
+     */
+    public void recordApiCalls(String userId, int count) {
+        getUserRateLimitInfo(userId).recordApiCalls(count);
+    }
+
+    /**
+     * Get the number of API calls left in the user's current window
+     */
+    public int getRemainingApiCalls(String userId) {
+        return getUserRateLimitInfo(userId).getRemaining(QuotaType.API_CALLS, System.currentTimeMillis());
+    }
+
     /**
      * Record a post creation for rate limiting
      */
@@ -301,6 +643,60 @@ public class ThreadsRateLimitService {
         userInfo.recordReply();
     }
 
+    /**
+     * Check if a keyword search is allowed for the user (2,200 queries per 24h)
+     */
+    public boolean checkKeywordQueryLimit(String userId) {
+        return getUserRateLimitInfo(userId).getKeywordQueriesInWindow() < KEYWORD_QUERIES_PER_24H;
+    }
+
+    /**
+     * Record a keyword search for rate limiting
+     */
+    public void recordKeywordQuery(String userId) {
+        getUserRateLimitInfo(userId).recordKeywordQuery();
+    }
+
+    /**
+     * Get the number of keyword searches left in the user's current window
+     */
+    public int getRemainingKeywordQueries(String userId) {
+        return Math.max(0, KEYWORD_QUERIES_PER_24H - getUserRateLimitInfo(userId).getKeywordQueriesInWindow());
+    }
+
+    /**
+     * Record app-wide usage percentages from an X-App-Usage header
+     */
+    public void recordAppUsage(int callPercent, int cpuPercent, int timePercent) {
+        appCallPercent = callPercent;
+        appCpuPercent = cpuPercent;
+        appTimePercent = timePercent;
+        appUsageReportedAt = System.currentTimeMillis();
+        if (getAppUsagePercent() >= PROACTIVE_THROTTLE_PERCENT) {
+            logger.warn("App-wide Graph API usage at {}%", getAppUsagePercent());
+        }
+    }
+
+    /**
+     * Record a user's usage percentages from an X-Business-Use-Case-Usage header
+     */
+    public void recordReportedUsage(String userId, int callPercent, int cpuPercent, int timePercent,
+            int regainMinutes) {
+        getUserRateLimitInfo(userId).applyReportedUsage(callPercent, cpuPercent, timePercent, regainMinutes);
+        logger.debug("Reported Graph API usage for user {}: calls={}%, cpu={}%, time={}%",
+                userId, callPercent, cpuPercent, timePercent);
+    }
+
+    /**
+     * Highest app-wide usage percentage from the last fresh X-App-Usage header
+     */
+    public int getAppUsagePercent() {
+        if (System.currentTimeMillis() - appUsageReportedAt >= REPORTED_USAGE_TTL_MS) {
+            return 0;
+        }
+        return Math.max(appCallPercent, Math.max(appCpuPercent, appTimePercent));
+    }
+
     /**
      * Update user's impression count (affects rate limits)
      */
@@ -309,13 +705,49 @@ public class ThreadsRateLimitService {
         logger.info("Updated impressions for user {}: {}", userId, impressions);
     }
 
+    /**
+     * Set the impressions from a rolling 24h count reported by the user insights
+     * (views of the last day), so limits follow the account's reach
+     */
+    public void recordReportedImpressions(String userId, long impressions24h) {
+        UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
+        int previous = userInfo.getImpressions();
+        userInfo.updateImpressions(clampImpressions(impressions24h));
+        logImpressionChange(userId, previous, userInfo.getImpressions(), "user insights");
+    }
+
+    /**
+     * Raise the impressions to a lower bound of the rolling 24h count (e.g. views
+     * of posts published within the last day); a higher reported count is kept
+     */
+    public void recordMinimumImpressions(String userId, long impressions24h) {
+        UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
+        int previous = userInfo.getImpressions();
+        userInfo.raiseImpressions(clampImpressions(impressions24h));
+        logImpressionChange(userId, previous, userInfo.getImpressions(), "recent post views");
+    }
+
+    private void logImpressionChange(String userId, int previous, int current, String source) {
+        if (previous != current) {
+            logger.info("Impressions of user {} updated from {}: {} -> {} (max calls per 24h: {})",
+                    userId, source, previous, current, maxCallsFor(current));
+        }
+    }
+
+    private static int clampImpressions(long impressions) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_IMPRESSIONS, impressions));
+    }
+
+    private static int maxCallsFor(int impressions) {
+        // Large accounts would overflow an int
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.max(MIN_IMPRESSIONS, impressions) * CALLS_PER_IMPRESSION);
+    }
+
     /**
      * Get current rate limit status for a user
      */
     public UserRateLimitInfo getUserRateLimitStatus(String userId) {
-        UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
-        userInfo.resetWindowIfNeeded();
-        return userInfo;
+        return getUserRateLimitInfo(userId);
     }
 
     /**
@@ -330,7 +762,7 @@ public class ThreadsRateLimitService {
         UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
         int impressions = Math.max(MIN_IMPRESSIONS, userInfo.getImpressions());
 
-        int maxCallsPerDay = impressions * CALLS_PER_IMPRESSION;
+        int maxCallsPerDay = maxCallsFor(impressions);
         long maxCpuTime = impressions * CPU_TIME_PER_IMPRESSION;
         long maxTotalTime = impressions * TOTAL_TIME_PER_IMPRESSION;
 
@@ -342,35 +774,152 @@ public class ThreadsRateLimitService {
                 POSTS_PER_24H, REPLIES_PER_24H, impressions);
     }
 
-    private UserRateLimitInfo getUserRateLimitInfo(String userId) {
-        return userRateLimits.computeIfAbsent(userId, UserRateLimitInfo::new);
+    /**
+     * All tracked users (for snapshots)
+     */
+    public Collection<UserRateLimitInfo> getTrackedUsers() {
+        return userRateLimits.values();
     }
 
-    private int getRemainingCalls(String userId) {
-        UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
-        return Math.max(0, userInfo.getMaxCallsPerWindow() - userInfo.getCallsInWindow());
+    /**
+     * Get or create a user's limiter state, e.g. to restore persisted usage
+     */
+    public UserRateLimitInfo getUserRateLimitInfo(String userId) {
+        UserRateLimitInfo userInfo = userRateLimits.get(userId);
+        if (userInfo != null) {
+            return userInfo;
+        }
+        userInfo = userRateLimits.computeIfAbsent(userId, id -> new UserRateLimitInfo(id, journal, metrics));
+        metrics.register(userInfo);
+        return userInfo;
     }
 
-    private int getRemainingPosts(String userId) {
-        UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
-        return Math.max(0, POSTS_PER_24H - userInfo.getPostsInWindow());
+    /**
+     * Check one quota with a single map lookup and clock read. An allowed result
+     * is the same for every quota, so the user's last one is reused until a
+     * remaining count changes; only denials and changed counts allocate.
+     */
+    private RateLimitStatus checkLimit(UserRateLimitInfo userInfo, QuotaType type) {
+        long now = System.currentTimeMillis();
+        int remainingCalls = userInfo.getRemaining(QuotaType.API_CALLS, now);
+        int remainingPosts = userInfo.getRemaining(QuotaType.POSTS, now);
+        int remainingReplies = userInfo.getRemaining(QuotaType.REPLIES, now);
+
+        int remaining = switch (type) {
+            case POSTS -> remainingPosts;
+            case REPLIES -> remainingReplies;
+            default -> remainingCalls;
+        };
+        if (remaining == 0) {
+            long retryAfter = toRetryAfterSeconds(
+                    userInfo.getCounter(type).retryAfterMillis(now, userInfo.getLimit(type)));
+            return new RateLimitStatus(false, limitExceededReason(type), retryAfter,
+                    remainingCalls, remainingPosts, remainingReplies);
+        }
+
+        long usageRetryAfter = reportedUsageRetryAfter(userInfo, now);
+        if (usageRetryAfter > 0) {
+            return new RateLimitStatus(false, reportedUsageReason(userInfo), usageRetryAfter,
+                    remainingCalls, remainingPosts, remainingReplies);
+        }
+
+        RateLimitStatus allowed = userInfo.allowedStatus;
+        if (allowed == null || allowed.remainingCalls != remainingCalls || allowed.remainingPosts != remainingPosts
+                || allowed.remainingReplies != remainingReplies) {
+            allowed = new RateLimitStatus(true, "OK", 0, remainingCalls, remainingPosts, remainingReplies);
+            userInfo.allowedStatus = allowed;
+        }
+        return allowed;
     }
 
-    private int getRemainingReplies(String userId) {
+    private Permit reserve(String userId, QuotaType type, QuotaClass quotaClass, long requested,
+            boolean partial) {
         UserRateLimitInfo userInfo = getUserRateLimitInfo(userId);
-        return Math.max(0, REPLIES_PER_24H - userInfo.getRepliesInWindow());
+        long now = System.currentTimeMillis();
+        long usageRetryAfter = reportedUsageRetryAfter(userInfo, now);
+        if (usageRetryAfter > 0) {
+            return new Permit(type, reportedUsageReason(userInfo), usageRetryAfter);
+        }
+
+        long epochMinute = now / 60_000L;
+        boolean chargesApiCall = type == QuotaType.POSTS || type == QuotaType.REPLIES;
+
+        long granted = requested;
+        if (chargesApiCall) {
+            long callLimit = getClassLimit(userInfo.getMaxCallsPerWindow(), quotaClass);
+            granted = store.tryReserve(userInfo, QuotaType.API_CALLS, now, granted, callLimit, partial);
+            if (granted == 0) {
+                return new Permit(type, limitExceededReason(QuotaType.API_CALLS, quotaClass), toRetryAfterSeconds(
+                        userInfo.getCounter(QuotaType.API_CALLS).retryAfterMillis(now, callLimit)));
+            }
+        }
+
+        long limit = getClassLimit(userInfo.getLimit(type), quotaClass);
+        long reserved = store.tryReserve(userInfo, type, now, granted, limit, partial);
+        if (chargesApiCall && reserved < granted) {
+            store.release(userInfo, QuotaType.API_CALLS, epochMinute, granted - reserved);
+        }
+        if (reserved == 0) {
+            return new Permit(type, limitExceededReason(type, quotaClass),
+                    toRetryAfterSeconds(userInfo.getCounter(type).retryAfterMillis(now, limit)));
+        }
+        return new Permit(userInfo, store, type, epochMinute, reserved, chargesApiCall);
     }
 
-    private long calculateRetryAfterSeconds(LocalDateTime windowStart) {
-        LocalDateTime windowEnd = windowStart.plusHours(RATE_LIMIT_WINDOW_HOURS);
-        return Math.max(0, ChronoUnit.SECONDS.between(LocalDateTime.now(), windowEnd));
+    private String limitExceededReason(QuotaType type, QuotaClass quotaClass) {
+        if (quotaClass == QuotaClass.INTERACTIVE) {
+            return limitExceededReason(type);
+        }
+        long reservedPercent = 100 - getClassLimit(100, quotaClass);
+        return limitExceededReason(type) + " for " + quotaClass.name().toLowerCase(Locale.ROOT) + " work ("
+                + reservedPercent + "% reserved for higher priority)";
+    }
+
+    private static String limitExceededReason(QuotaType type) {
+        return switch (type) {
+            case API_CALLS -> "API call limit exceeded";
+            case POSTS -> "Post limit exceeded (250 posts per 24h)";
+            case REPLIES -> "Reply limit exceeded (1000 replies per 24h)";
+            case KEYWORD_QUERIES -> "Daily keyword search limit exceeded (2,200 queries per 24 hours)";
+            case CPU_TIME -> "CPU time limit exceeded";
+            case TOTAL_TIME -> "Total time limit exceeded";
+        };
+    }
+
+    /**
+     * Deny requests once the usage reported by Meta (per user or app-wide) nears
+     * its limit, so we back off before Meta starts rejecting calls. Returns the
+     * seconds to back off, 0 when not throttled.
+     */
+    private long reportedUsageRetryAfter(UserRateLimitInfo userInfo, long now) {
+        if (Math.max(userInfo.getReportedUsagePercent(), getAppUsagePercent()) < PROACTIVE_THROTTLE_PERCENT) {
+            return 0;
+        }
+        long regainIn = Math.max(0, (userInfo.regainAccessAt - now) / 1000);
+        return regainIn > 0 ? regainIn : USAGE_BACKOFF_SECONDS;
+    }
+
+    private String reportedUsageReason(UserRateLimitInfo userInfo) {
+        int usagePercent = Math.max(userInfo.getReportedUsagePercent(), getAppUsagePercent());
+        return "Graph API usage at " + usagePercent + "% of limit";
+    }
+
+    private long toRetryAfterSeconds(long retryAfterMillis) {
+        // Round up so callers never retry before the bucket has left the window
+        return (retryAfterMillis + 999) / 1000;
     }
 
     /**
      * Clean up old rate limit entries (call periodically)
      */
     public void cleanupOldEntries() {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(RATE_LIMIT_WINDOW_HOURS * 2);
-        userRateLimits.entrySet().removeIf(entry -> entry.getValue().getLastApiCall().isBefore(cutoff));
+        long cutoff = System.currentTimeMillis() - RATE_LIMIT_WINDOW_HOURS * 2 * 3_600_000L;
+        userRateLimits.values().removeIf(userInfo -> {
+            if (userInfo.getLastApiCallMillis() >= cutoff) {
+                return false;
+            }
+            metrics.unregister(userInfo.getUserId());
+            return true;
+        });
     }
 }
\ No newline at end of file
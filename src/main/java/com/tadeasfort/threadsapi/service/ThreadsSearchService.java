@@ -1,47 +1,41 @@
 package com.tadeasfort.threadsapi.service;
 
 import com.tadeasfort.threadsapi.entity.SearchResult;
-import com.tadeasfort.threadsapi.entity.ThreadsPost;
 import com.tadeasfort.threadsapi.repository.SearchResultRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional
 public class ThreadsSearchService {
 
     private static final Logger logger = LoggerFactory.getLogger(ThreadsSearchService.class);
-    private static final String THREADS_API_BASE_URL = "https://graph.threads.net/v1.0";
     private static final int CACHE_HOURS = 1; // Cache results for 1 hour
-
-    // Custom formatter for Threads API timestamps (e.g.,
-    // "2025-06-22T13:00:27+0000")
-    private static final DateTimeFormatter THREADS_TIMESTAMP_FORMATTER = DateTimeFormatter
-            .ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+    private static final String SEARCH_FIELDS = "id,text,media_type,permalink,timestamp,username,"
+            + "has_replies,is_quote_post,is_reply";
 
     @Autowired
     private SearchResultRepository searchResultRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private ThreadsGraphClient graphClient;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private RetentionService retentionService;
 
     /**
      * Search for posts by keyword with caching
@@ -67,36 +61,25 @@ public class ThreadsSearchService {
      * Perform fresh search via Threads API
      */
     public List<SearchResult> performFreshSearch(String query, String searchType, String userId, String accessToken) {
+        String effectiveSearchType = searchType != null ? searchType : "TOP";
         try {
-            String url = UriComponentsBuilder.fromUriString(THREADS_API_BASE_URL + "/keyword_search")
-                    .queryParam("q", query)
-                    .queryParam("search_type", searchType != null ? searchType : "TOP")
-                    .queryParam("fields",
-                            "id,text,media_type,permalink,timestamp,username,has_replies,is_quote_post,is_reply")
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
             logger.info("Performing fresh search for query: {}", query);
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                JsonNode dataArray = jsonResponse.get("data");
-
-                List<SearchResult> results = new ArrayList<>();
-                if (dataArray != null && dataArray.isArray()) {
-                    for (JsonNode resultNode : dataArray) {
-                        SearchResult searchResult = parseSearchResultFromJson(resultNode, query, searchType, userId);
-                        if (searchResult != null) {
-                            SearchResult savedResult = searchResultRepository.save(searchResult);
-                            results.add(savedResult);
-                        }
-                    }
-                }
-
-                logger.info("Found and cached {} search results for query: {}", results.size(), query);
-                return results;
+            List<SearchResult> parsedResults = graphClient.getPublic("/keyword_search",
+                    Map.of("q", query, "search_type", effectiveSearchType, "fields", SEARCH_FIELDS),
+                    accessToken,
+                    parser -> GraphJsonReader.readData(parser,
+                            p -> GraphJsonReader.readSearchResult(p, query, searchType, userId)));
+
+            List<SearchResult> results = new ArrayList<>(parsedResults.size());
+            for (SearchResult searchResult : parsedResults) {
+                SearchResult savedResult = searchResultRepository.save(searchResult);
+                results.add(savedResult);
             }
+
+            logger.info("Found and cached {} search results for query: {}", results.size(), query);
+            return results;
+        } catch (GraphApiException e) {
+            logger.warn("Search for query {} failed ({}): {}", query, e.getCategory(), e.getMessage());
         } catch (Exception e) {
             logger.error("Error performing search for query {}: {}", query, e.getMessage(), e);
         }
@@ -166,12 +149,11 @@ public class ThreadsSearchService {
     }
 
     /**
-     * Clean up old search results
+     * Clean up old search results; returns the number of rows removed
      */
-    public void cleanupOldSearchResults(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        searchResultRepository.deleteBySearchTimestampBefore(cutoffDate);
-        logger.info("Cleaned up search results older than {} days", daysToKeep);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long cleanupOldSearchResults(int daysToKeep) {
+        return retentionService.purge("search_results", Duration.ofDays(daysToKeep)).getRowsRemoved();
     }
 
     /**
@@ -179,30 +161,9 @@ public class ThreadsSearchService {
      */
     public List<RecentKeyword> getRecentlySearchedKeywords(String accessToken) {
         try {
-            String url = UriComponentsBuilder.fromUriString(THREADS_API_BASE_URL + "/me")
-                    .queryParam("fields", "recently_searched_keywords")
-                    .queryParam("access_token", accessToken)
-                    .toUriString();
-
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                JsonNode keywordsArray = jsonResponse.get("recently_searched_keywords");
-
-                List<RecentKeyword> keywords = new ArrayList<>();
-                if (keywordsArray != null && keywordsArray.isArray()) {
-                    for (JsonNode keywordNode : keywordsArray) {
-                        String query = keywordNode.get("query").asText();
-                        long timestamp = keywordNode.get("timestamp").asLong();
-                        LocalDateTime searchTime = LocalDateTime.ofEpochSecond(timestamp / 1000, 0,
-                                java.time.ZoneOffset.UTC);
-                        keywords.add(new RecentKeyword(query, searchTime));
-                    }
-                }
-
-                return keywords;
-            }
+            return graphClient.get("/me", Map.of("fields", "recently_searched_keywords"), accessToken,
+                    parser -> GraphJsonReader.readArrayField(parser, "recently_searched_keywords",
+                            this::readRecentKeyword));
         } catch (Exception e) {
             logger.error("Error fetching recently searched keywords: {}", e.getMessage());
         }
@@ -210,94 +171,31 @@ public class ThreadsSearchService {
     }
 
     /**
-     * Parse Threads API timestamp format to LocalDateTime
+     * Read a recently searched keyword entry
      */
-    private LocalDateTime parseThreadsTimestamp(String timestamp) {
-        try {
-            // Parse as OffsetDateTime first, then convert to LocalDateTime in UTC
-            OffsetDateTime offsetDateTime = OffsetDateTime.parse(timestamp, THREADS_TIMESTAMP_FORMATTER);
-            return offsetDateTime.toLocalDateTime();
-        } catch (Exception e) {
-            logger.warn("Failed to parse timestamp '{}', trying alternative format", timestamp);
-            try {
-                // Fallback to ISO format
-                return LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-            } catch (Exception e2) {
-                logger.error("Failed to parse timestamp '{}' with both formatters", timestamp);
-                return LocalDateTime.now(); // Fallback to current time
-            }
+    private RecentKeyword readRecentKeyword(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
         }
-    }
-
-    /**
-     * Parse search result from JSON response
-     */
-    private SearchResult parseSearchResultFromJson(JsonNode resultNode, String query, String searchType,
-            String userId) {
-        try {
-            SearchResult searchResult = new SearchResult(query, searchType, userId);
-
-            if (resultNode.has("id")) {
-                searchResult.setPostId(resultNode.get("id").asText());
-            }
-
-            if (resultNode.has("text")) {
-                searchResult.setText(resultNode.get("text").asText());
-            }
-
-            if (resultNode.has("media_type")) {
-                String mediaType = resultNode.get("media_type").asText();
-                searchResult.setMediaType(parseMediaType(mediaType));
-            }
-
-            if (resultNode.has("permalink")) {
-                searchResult.setPermalink(resultNode.get("permalink").asText());
-            }
-
-            if (resultNode.has("timestamp")) {
-                String timestamp = resultNode.get("timestamp").asText();
-                searchResult.setTimestamp(parseThreadsTimestamp(timestamp));
-            }
-
-            if (resultNode.has("username")) {
-                searchResult.setUsername(resultNode.get("username").asText());
-            }
-
-            if (resultNode.has("has_replies")) {
-                searchResult.setHasReplies(resultNode.get("has_replies").asBoolean());
-            }
 
-            if (resultNode.has("is_quote_post")) {
-                searchResult.setIsQuotePost(resultNode.get("is_quote_post").asBoolean());
+        String query = null;
+        long timestamp = 0L;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "query" -> query = parser.getValueAsString();
+                case "timestamp" -> timestamp = parser.getValueAsLong();
+                default -> parser.skipChildren();
             }
-
-            if (resultNode.has("is_reply")) {
-                searchResult.setIsReply(resultNode.get("is_reply").asBoolean());
-            }
-
-            return searchResult;
-        } catch (Exception e) {
-            logger.error("Error parsing search result from JSON: {}", e.getMessage());
-            return null;
         }
-    }
 
-    /**
-     * Parse media type from string
-     */
-    private ThreadsPost.MediaType parseMediaType(String mediaType) {
-        switch (mediaType.toUpperCase()) {
-            case "TEXT_POST":
-                return ThreadsPost.MediaType.TEXT_POST;
-            case "IMAGE":
-                return ThreadsPost.MediaType.IMAGE;
-            case "VIDEO":
-                return ThreadsPost.MediaType.VIDEO;
-            case "CAROUSEL_ALBUM":
-                return ThreadsPost.MediaType.CAROUSEL_ALBUM;
-            default:
-                return ThreadsPost.MediaType.TEXT_POST;
+        if (query == null) {
+            return null;
         }
+        LocalDateTime searchTime = LocalDateTime.ofEpochSecond(timestamp / 1000, 0, java.time.ZoneOffset.UTC);
+        return new RecentKeyword(query, searchTime);
     }
 
     /**
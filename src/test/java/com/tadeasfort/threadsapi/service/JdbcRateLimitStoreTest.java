@@ -0,0 +1,71 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.repository.RateLimitLeaseRepository;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.Permit;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Leasing from within a caller's transaction; the pool gets a second
+ * connection, as the suspended transaction keeps the first
+ */
+@SpringBootTest(properties = {
+        "threads.rate-limit.store=jdbc",
+        "threads.rate-limit.persistence-enabled=false",
+        "spring.datasource.hikari.maximum-pool-size=2"
+})
+class JdbcRateLimitStoreTest {
+
+    private static final String USER = "jdbc-store-test";
+
+    @Autowired
+    private ThreadsRateLimitService rateLimitService;
+
+    @Autowired
+    private RateLimitLeaseRepository leaseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path db = Files.createTempFile("jdbc-rate-limit-store", ".db");
+        db.toFile().deleteOnExit();
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + db);
+    }
+
+    @Test
+    void leaseSurvivesTheCallersRollback() {
+        Permit permit = transactionTemplate.execute(status -> {
+            leaseRepository.count();
+            Permit acquired = rateLimitService.tryAcquire(USER, QuotaType.POSTS);
+            assertFalse(status.isRollbackOnly());
+            status.setRollbackOnly();
+            return acquired;
+        });
+
+        assertTrue(permit.isGranted());
+        long leasedPosts = leaseRepository.sumLeased(USER, QuotaType.POSTS, 0);
+        long leasedCalls = leaseRepository.sumLeased(USER, QuotaType.API_CALLS, 0);
+        assertTrue(leasedPosts >= 1);
+        assertTrue(leasedCalls >= 1);
+
+        // Served from the local lease; nothing more is leased
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(rateLimitService.tryAcquire(USER, QuotaType.POSTS).isGranted());
+        });
+        assertEquals(leasedPosts, leaseRepository.sumLeased(USER, QuotaType.POSTS, 0));
+    }
+}
@@ -0,0 +1,45 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.UserRateLimitInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimitMetricsTest {
+
+    @Test
+    void concurrentRegistrationsStayWithinTheCap() throws Exception {
+        RateLimitConfig config = new RateLimitConfig();
+        config.setMetricsMaxUsers(10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RateLimitMetrics metrics = new RateLimitMetrics(registry, config);
+
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 200; i++) {
+                UserRateLimitInfo userInfo = new UserRateLimitInfo("user-" + i);
+                executor.submit(() -> {
+                    start.await();
+                    metrics.register(userInfo);
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+        assertEquals(10, registry.find("threads.rate_limit.limit").tag("quota", "posts").gauges().size());
+
+        // Unregistering frees a slot for the next user
+        metrics.unregister("user-0");
+        metrics.unregister("user-1");
+        for (int i = 0; i < 200; i++) {
+            metrics.register(new UserRateLimitInfo("late-" + i));
+        }
+        assertEquals(10, registry.find("threads.rate_limit.limit").tag("quota", "posts").gauges().size());
+    }
+}
@@ -0,0 +1,109 @@
+package com.tadeasfort.threadsapi.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlidingWindowCounterTest {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    private SlidingWindowCounter counter;
+    private long minuteStart;
+    private long epochMinute;
+
+    @BeforeEach
+    void setUp() {
+        counter = new SlidingWindowCounter(5);
+        minuteStart = System.currentTimeMillis() / MINUTE_MILLIS * MINUTE_MILLIS;
+        epochMinute = minuteStart / MINUTE_MILLIS;
+    }
+
+    @Test
+    void concurrentReservationsStopAtTheLimit() throws Exception {
+        int threads = 16;
+        int attemptsPerThread = 500;
+        long limit = 1_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long granted = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        granted += counter.tryReserve(minuteStart + 1_000, 1, limit, false);
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+            long granted = 0;
+            for (Future<Long> result : results) {
+                granted += result.get();
+            }
+            assertEquals(limit, granted);
+        }
+        assertEquals(limit, counter.sum(minuteStart + 1_000));
+    }
+
+    @Test
+    void allOrNothingIsDeniedWhenItDoesNotFit() {
+        assertEquals(8, counter.tryReserve(minuteStart, 8, 10, false));
+        assertEquals(0, counter.tryReserve(minuteStart, 3, 10, false));
+        assertEquals(8, counter.sum(minuteStart));
+    }
+
+    @Test
+    void partialReservationGetsWhatIsLeft() {
+        assertEquals(8, counter.tryReserve(minuteStart, 8, 10, true));
+        assertEquals(2, counter.tryReserve(minuteStart, 5, 10, true));
+        assertEquals(0, counter.tryReserve(minuteStart, 5, 10, true));
+        assertEquals(10, counter.sum(minuteStart));
+    }
+
+    @Test
+    void releaseRestoresCapacity() {
+        assertEquals(10, counter.tryReserve(minuteStart, 10, 10, false));
+        counter.release(epochMinute, 4);
+        assertEquals(6, counter.sum(minuteStart));
+        assertEquals(4, counter.tryReserve(minuteStart, 4, 10, false));
+    }
+
+    @Test
+    void releaseAfterTheMinuteClosedShrinksTheClosedTotal() {
+        assertEquals(10, counter.tryReserve(minuteStart, 10, 10, false));
+
+        long nextMinute = minuteStart + MINUTE_MILLIS;
+        // Caches the closed minutes' total for the next minute
+        assertEquals(0, counter.tryReserve(nextMinute, 1, 10, false));
+
+        counter.release(epochMinute, 10);
+        assertEquals(0, counter.sum(nextMinute));
+        assertEquals(10, counter.tryReserve(nextMinute, 10, 10, false));
+    }
+
+    @Test
+    void reservationsLeaveTheWindow() {
+        assertEquals(10, counter.tryReserve(minuteStart, 10, 10, false));
+        long lastMinuteInWindow = minuteStart + 4 * MINUTE_MILLIS;
+        assertEquals(10, counter.sum(lastMinuteInWindow));
+        assertEquals(MINUTE_MILLIS, counter.retryAfterMillis(lastMinuteInWindow, 10));
+
+        long expired = minuteStart + 5 * MINUTE_MILLIS;
+        assertEquals(0, counter.sum(expired));
+        assertEquals(10, counter.tryReserve(expired, 10, 10, false));
+
+        // The bucket was reused by a newer minute; the stale release is ignored
+        counter.release(epochMinute, 10);
+        assertEquals(10, counter.sum(expired));
+    }
+}
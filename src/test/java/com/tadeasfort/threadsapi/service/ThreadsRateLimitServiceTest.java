@@ -0,0 +1,122 @@
+package com.tadeasfort.threadsapi.service;
+
+import com.tadeasfort.threadsapi.config.RateLimitConfig;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.Permit;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaClass;
+import com.tadeasfort.threadsapi.service.ThreadsRateLimitService.QuotaType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreadsRateLimitServiceTest {
+
+    private static final String USER = "user-1";
+    private static final int POST_LIMIT = 250;
+
+    private ThreadsRateLimitService service;
+    private RateLimitJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitConfig config = new RateLimitConfig();
+        journal = new RateLimitJournal();
+        service = new ThreadsRateLimitService();
+        ReflectionTestUtils.setField(service, "journal", journal);
+        ReflectionTestUtils.setField(service, "metrics", new RateLimitMetrics(new SimpleMeterRegistry(), config));
+        ReflectionTestUtils.setField(service, "store", new InMemoryRateLimitStore());
+        ReflectionTestUtils.setField(service, "rateLimitConfig", config);
+    }
+
+    @Test
+    void concurrentPermitsStopAtTheLimit() throws Exception {
+        int threads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int i = 0; i < 20; i++) {
+                        if (service.tryAcquire(USER, QuotaType.POSTS).isGranted()) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+            int granted = 0;
+            for (Future<Integer> result : results) {
+                granted += result.get();
+            }
+            assertEquals(POST_LIMIT, granted);
+        }
+        assertEquals(POST_LIMIT, service.getUserRateLimitInfo(USER).getPostsInWindow());
+        assertEquals(POST_LIMIT, service.getUserRateLimitInfo(USER).getCallsInWindow());
+    }
+
+    @Test
+    void refundReturnsTheUnitsOnce() {
+        Permit permit = service.tryAcquireUpTo(USER, QuotaType.POSTS, 10);
+        assertEquals(10, permit.getAmount());
+        assertEquals(10, service.getUserRateLimitInfo(USER).getPostsInWindow());
+
+        permit.refund();
+        permit.refund();
+        permit.commit();
+        assertEquals(0, service.getUserRateLimitInfo(USER).getPostsInWindow());
+        assertEquals(0, service.getUserRateLimitInfo(USER).getCallsInWindow());
+        assertTrue(journal.drain().isEmpty());
+    }
+
+    @Test
+    void commitKeepsTheUnitsAndJournalsThem() {
+        Permit permit = service.tryAcquire(USER, QuotaType.REPLIES);
+        permit.commit();
+        permit.refund();
+
+        assertEquals(1, service.getUserRateLimitInfo(USER).getRepliesInWindow());
+        assertEquals(1, service.getUserRateLimitInfo(USER).getCallsInWindow());
+        // The reply and the API call it is charged as
+        assertEquals(2, journal.drain().size());
+    }
+
+    @Test
+    void partialPermitGetsWhatIsLeft() {
+        assertEquals(POST_LIMIT - 5, service.tryAcquireUpTo(USER, QuotaType.POSTS, POST_LIMIT - 5).getAmount());
+
+        Permit permit = service.tryAcquireUpTo(USER, QuotaType.POSTS, 20);
+        assertTrue(permit.isGranted());
+        assertEquals(5, permit.getAmount());
+        // The API calls charged for the ungranted posts are handed back
+        assertEquals(POST_LIMIT, service.getUserRateLimitInfo(USER).getCallsInWindow());
+
+        Permit denied = service.tryAcquire(USER, QuotaType.POSTS);
+        assertFalse(denied.isGranted());
+        assertTrue(denied.getRetryAfterSeconds() > 0);
+    }
+
+    @Test
+    void lowerQuotaClassesLeaveTheReserve() {
+        // 20% kept for interactive work, another 20% for automation
+        int backfillLimit = POST_LIMIT * 60 / 100;
+        assertEquals(backfillLimit,
+                service.tryAcquireUpTo(USER, QuotaType.POSTS, POST_LIMIT, QuotaClass.BACKFILL).getAmount());
+        assertFalse(service.tryAcquire(USER, QuotaType.POSTS, QuotaClass.BACKFILL).isGranted());
+        assertTrue(service.tryAcquire(USER, QuotaType.POSTS, QuotaClass.AUTOMATION).isGranted());
+        assertTrue(service.tryAcquire(USER, QuotaType.POSTS).isGranted());
+    }
+}